@@ -2,8 +2,14 @@ package cat.tecnocampus.veterinarymanagement;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+// Outside the transaction interceptor, so cache entries are evicted once the change has committed
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 public class VeterinaryManagementApplication {
 
     public static void main(String[] args) {
@@ -4,8 +4,11 @@ import cat.tecnocampus.veterinarymanagement.application.exceptions.*;
 import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitInvalidStateException;
 import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitStatusInvalidException;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -123,6 +126,24 @@ public class ApplicationLevelExceptionsHandler {
         return pd;
     }
 
+    @ExceptionHandler(BookingConflictException.class)
+    @ResponseBody
+    public ProblemDetail handleBookingConflictException(BookingConflictException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+        pd.setTitle("Booking conflict");
+        pd.setProperty("timestamp", Instant.now());
+        return pd;
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    public ProblemDetail handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "The resource was modified concurrently, try again");
+        pd.setTitle("Concurrent modification");
+        pd.setProperty("timestamp", Instant.now());
+        return pd;
+    }
+
     @ExceptionHandler(MedicationPrescriptionDoesNotExistException.class)
     @ResponseBody
     public ProblemDetail MedicationPrescriptionDoesNotExistException(MedicationPrescriptionDoesNotExistException ex) {
@@ -155,6 +176,7 @@ public class ApplicationLevelExceptionsHandler {
     public ProblemDetail handleMedicationIncompatibilityExistsException(MedicationIncompatibilityExistsException ex) {
         ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
         pd.setTitle("Medication incompatibility");
+        pd.setProperty("conflicts", ex.getConflicts());
         pd.setProperty("timestamp", Instant.now());
         return pd;
     }
@@ -195,4 +217,13 @@ public class ApplicationLevelExceptionsHandler {
         return pd;
     }
 
+    @ExceptionHandler(LoginThrottledException.class)
+    @ResponseBody
+    public ResponseEntity<ProblemDetail> handleLoginThrottledException(LoginThrottledException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        pd.setTitle("Too Many Login Attempts");
+        pd.setProperty("timestamp", Instant.now());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(pd);
+    }
+
 }
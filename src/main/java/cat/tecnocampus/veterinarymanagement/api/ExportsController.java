@@ -0,0 +1,84 @@
+package cat.tecnocampus.veterinarymanagement.api;
+
+import cat.tecnocampus.veterinarymanagement.application.CsvWriter;
+import cat.tecnocampus.veterinarymanagement.application.ExportsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CSV exports written to the response while rows are read. The body is gzip-compressed when the client
+ * accepts it.
+ */
+@RestController
+@RequestMapping("/exports")
+public class ExportsController {
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final ExportsService exportsService;
+
+    public ExportsController(ExportsService exportsService) {
+        this.exportsService = exportsService;
+    }
+
+    @GetMapping("/visits")
+    public ResponseEntity<StreamingResponseBody> exportVisits(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        exportsService.validateRange(from, to);
+        return csv("visits.csv", acceptEncoding, csv -> exportsService.exportVisits(from, to, csv));
+    }
+
+    @GetMapping("/prescriptions")
+    public ResponseEntity<StreamingResponseBody> exportPrescriptions(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        exportsService.validateRange(from, to);
+        return csv("prescriptions.csv", acceptEncoding, csv -> exportsService.exportPrescriptions(from, to, csv));
+    }
+
+    @GetMapping("/invoices")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        exportsService.validateRange(from, to);
+        return csv("invoices.csv", acceptEncoding, csv -> exportsService.exportInvoices(from, to, csv));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> csv(String filename, String acceptEncoding, Consumer<CsvWriter> export) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 8192);
+            export.accept(new CsvWriter(writer));
+            writer.flush();
+            if (target instanceof GZIPOutputStream compressed) compressed.finish();
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
+    }
+}
@@ -0,0 +1,35 @@
+package cat.tecnocampus.veterinarymanagement.api;
+
+import cat.tecnocampus.veterinarymanagement.application.MedicationsService;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationBatchInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationWriteOffReportInformation;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/medicationBatches")
+public class MedicationBatchesController {
+    private final MedicationsService medicationsService;
+
+    public MedicationBatchesController(MedicationsService medicationsService) {
+        this.medicationsService = medicationsService;
+    }
+
+    @GetMapping("/expiring")
+    public List<MedicationBatchInformation> getExpiringBatches(@RequestParam(value = "days", defaultValue = "30") int days) {
+        return medicationsService.getExpiringBatches(days);
+    }
+
+    @GetMapping("/write-offs")
+    public List<MedicationWriteOffReportInformation> getWriteOffReport(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return medicationsService.getWriteOffReport(from, to);
+    }
+}
@@ -9,6 +9,7 @@ import cat.tecnocampus.veterinarymanagement.application.mappers.LowStockAlertMap
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.LowStockAlertInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationBatchInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationStockInformation;
 import cat.tecnocampus.veterinarymanagement.domain.LowStockAlert;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +37,11 @@ public class MedicationsController {
                 .orElseThrow(() -> new MedicationDoesNotExistException("Medication with id " + medication_id + " does not exist"));
     }
 
+    @GetMapping("/{medication_id}/stock")
+    public MedicationStockInformation getMedicationStock(@PathVariable Long medication_id) {
+        return medicationsService.getMedicationStock(medication_id);
+    }
+
     /**
      * Crea un nuevo lote para un medicamento
      * @param medication_id ID del medicamento
@@ -55,6 +61,19 @@ public class MedicationsController {
         return ResponseEntity.created(location).body(info);
     }
 
+    /**
+     * Crea varios lotes de un medicamento de una sola vez (todos o ninguno)
+     * @param medication_id ID del medicamento
+     * @param input Lista de lotes
+     * @return IDs de los lotes creados, en el orden recibido
+     */
+    @PostMapping("/{medication_id}/medicationBatches/import")
+    public ResponseEntity<List<Long>> importMedicationBatches(
+            @PathVariable Long medication_id,
+            @RequestBody @Valid List<MedicationBatchCommand> input) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(medicationsService.importMedicationBatches(medication_id, input));
+    }
+
     /**
      * Lista todos los lotes de un medicamento
      * @param medication_id ID del medicamento
@@ -1,35 +1,57 @@
 package cat.tecnocampus.veterinarymanagement.api;
 
 import cat.tecnocampus.veterinarymanagement.application.VisitsService;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.RecurringVisitCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitCommand;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitTransitionCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitDiagnosisCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitRescheduleCommand;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitSearchCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.MedicationPrescriptionCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.TreatmentCommand;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.FreeSlotInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionCountInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.RecurringVisitBookingInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitPageInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.TreatmentInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitHistoryEntryInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitTransitionOutcomeInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianPrescriptionCountInformation;
 import cat.tecnocampus.veterinarymanagement.application.exceptions.TreatmentDoesNotExistException;
+import cat.tecnocampus.veterinarymanagement.domain.VisitStatus;
+import cat.tecnocampus.veterinarymanagement.security.authorization.VisitTransitionPermissions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/visits")
 public class VisitsController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final VisitsService visitsService;
+    private final ObjectMapper objectMapper;
 
-    public VisitsController(VisitsService visitsService) {
+    public VisitsController(VisitsService visitsService, ObjectMapper objectMapper) {
         this.visitsService = visitsService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{visit_id}")
@@ -37,9 +59,50 @@ public class VisitsController {
         return visitsService.getVisitById(visit_id);
     }
 
+    /**
+     * Keyset-paginated listing. The body is the page of visits; the cursor of the next page, if any,
+     * is returned in the X-Next-Cursor header.
+     */
     @GetMapping
-    public List<VisitInformation> getAllVisits() {
-        return visitsService.getAllVisits();
+    public ResponseEntity<List<VisitInformation>> getVisits(
+            @RequestParam(value = "veterinarian_id", required = false) Long veterinarianId,
+            @RequestParam(value = "pet_id", required = false) Long petId,
+            @RequestParam(value = "pet_owner_id", required = false) Long petOwnerId,
+            @RequestParam(value = "status", required = false) VisitStatus status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        VisitSearchCommand filter = new VisitSearchCommand(veterinarianId, petId, petOwnerId, status, from, to);
+        VisitPageInformation page = visitsService.searchVisits(filter, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next_cursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next_cursor());
+        }
+        return response.body(page.visits());
+    }
+
+    /**
+     * Same listing, unpaginated, as newline-delimited JSON written while rows are read.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamVisits(
+            @RequestParam(value = "veterinarian_id", required = false) Long veterinarianId,
+            @RequestParam(value = "pet_id", required = false) Long petId,
+            @RequestParam(value = "pet_owner_id", required = false) Long petOwnerId,
+            @RequestParam(value = "status", required = false) VisitStatus status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        VisitSearchCommand filter = new VisitSearchCommand(veterinarianId, petId, petOwnerId, status, from, to);
+        StreamingResponseBody body = out -> visitsService.streamVisits(filter, visit -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(visit));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @PostMapping
@@ -51,6 +114,31 @@ public class VisitsController {
         return ResponseEntity.created(location).body(info);
     }
 
+    @PostMapping("/import")
+    public ResponseEntity<List<Long>> importVisits(@RequestBody @Valid List<VisitCommand> commands) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(visitsService.importVisits(commands));
+    }
+
+    /**
+     * Books a visit on every occurrence of the recurrence. Returns 201 if at least one occurrence was booked and
+     * 409 if none could be, with the outcome of each occurrence in the body.
+     */
+    @PostMapping("/recurring")
+    public ResponseEntity<RecurringVisitBookingInformation> bookRecurringVisits(@RequestBody @Valid RecurringVisitCommand command) {
+        RecurringVisitBookingInformation info = visitsService.bookRecurringVisits(command);
+        return ResponseEntity.status(info.booked() > 0 ? HttpStatus.CREATED : HttpStatus.CONFLICT).body(info);
+    }
+
+    /**
+     * Applies several state transitions at once (e.g. closing out the day) and returns the outcome of each.
+     * Items whose action the caller may not apply on a single visit are reported as not allowed.
+     */
+    @PostMapping("/transitions")
+    public List<VisitTransitionOutcomeInformation> applyVisitTransitions(@RequestBody @Valid List<VisitTransitionCommand> commands,
+                                                                          Authentication authentication) {
+        return visitsService.applyVisitTransitions(commands, VisitTransitionPermissions.permittedActions(authentication));
+    }
+
     @DeleteMapping("/{visit_id}")
     public ResponseEntity<Void> deleteVisit(@PathVariable Long visit_id) {
         visitsService.deleteVisit(visit_id);
@@ -96,6 +184,15 @@ public class VisitsController {
         return ResponseEntity.created(location).body(info);
     }
 
+    @GetMapping("/free-slots")
+    public List<FreeSlotInformation> findFreeSlots(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "duration", defaultValue = "15") int duration,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return visitsService.findFreeSlots(from, to, duration, limit);
+    }
+
     @PostMapping("/{visit_id}/owner-not-showed-up")
     public VisitInformation ownerDidNotShowUp(@PathVariable Long visit_id) {
         return visitsService.ownerNotShowedUp(visit_id);
@@ -127,11 +224,11 @@ public class VisitsController {
     }
 
     @GetMapping("/prescriptions/report")
-    public ResponseEntity<List<Map<String, Object>>> listMedicationPrescriptionsByPeriod(
+    public ResponseEntity<List<MedicationPrescriptionCountInformation>> listMedicationPrescriptionsByPeriod(
             @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        List<Map<String, Object>> report = visitsService.listMedicationPrescriptionsByPeriod(from, to);
+        List<MedicationPrescriptionCountInformation> report = visitsService.listMedicationPrescriptionsByPeriod(from, to);
         return ResponseEntity.ok(report);
     }
 
@@ -207,12 +304,12 @@ public class VisitsController {
      * GET /visits/veterinarians/report?medication_id=...&from=YYYY-MM-DD&to=YYYY-MM-DD
      */
     @GetMapping("/veterinarians/report")
-    public ResponseEntity<List<Map<String, Object>>> getVeterinariansByMedicationPrescriptions(
+    public ResponseEntity<List<VeterinarianPrescriptionCountInformation>> getVeterinariansByMedicationPrescriptions(
             @RequestParam("medication_id") Long medicationId,
             @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        List<Map<String, Object>> report = visitsService.listVeterinariansByMedicationPrescriptions(medicationId, from, to);
+        List<VeterinarianPrescriptionCountInformation> report = visitsService.listVeterinariansByMedicationPrescriptions(medicationId, from, to);
         return ResponseEntity.ok(report);
     }
 }
@@ -0,0 +1,151 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.application.exceptions.BookingConflictException;
+import cat.tecnocampus.veterinarymanagement.domain.BookingLedger;
+import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
+import cat.tecnocampus.veterinarymanagement.persistence.BookingLedgerRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes bookings of the same veterinarian and day while letting every other agenda proceed in parallel.
+ * <p>
+ * Inside this instance a striped lock keyed on (veterinarian, day) is taken before the slot is validated and
+ * held until the transaction completes, after the slot index has seen the commit. Across instances the
+ * {@link BookingLedger} row of that day is version-bumped, so the second of two racing transactions fails at
+ * commit instead of double-booking. The version is handed to the {@link SlotAvailabilityIndex}, which reloads its
+ * cached day when another instance has booked it since.
+ */
+@Component
+public class BookingGuard {
+    private static final int STRIPES = 64;
+    private static final long LOCK_TIMEOUT_SECONDS = 5;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final BookingLedgerRepository bookingLedgerRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+
+    public BookingGuard(BookingLedgerRepository bookingLedgerRepository, SlotAvailabilityIndex slotAvailabilityIndex) {
+        this.bookingLedgerRepository = bookingLedgerRepository;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the veterinarian's agenda for {@code day} until the current transaction completes.
+     *
+     * @throws BookingConflictException if the agenda stays locked by other bookings for too long or another
+     *                                  transaction is creating its ledger row at the same time
+     */
+    public void lockAgenda(Veterinarian veterinarian, LocalDate day) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Bookings must be guarded inside a transaction");
+        }
+        lock(stripe(veterinarian, day), veterinarian.getId() + " on " + day);
+
+        Optional<BookingLedger> ledger = bookingLedgerRepository.findByVeterinarianAndBookingDate(veterinarian, day);
+        if (ledger.isPresent()) {
+            locked(ledger.get());
+            return;
+        }
+        try {
+            created(bookingLedgerRepository.saveAndFlush(new BookingLedger(veterinarian, day)));
+        } catch (DataIntegrityViolationException e) {
+            throw new BookingConflictException("Concurrent booking for veterinarian " + veterinarian.getId() + " on " + day + ", try again");
+        }
+    }
+
+    /**
+     * Locks the veterinarian's agenda for every one of {@code days} until the current transaction completes,
+     * as {@link #lockAgendas(Map)}.
+     *
+     * @throws BookingConflictException as {@link #lockAgenda}
+     */
+    public void lockAgendas(Veterinarian veterinarian, Collection<LocalDate> days) {
+        lockAgendas(Map.of(veterinarian, days));
+    }
+
+    /**
+     * Locks the agendas of every veterinarian for each of their days until the current transaction completes.
+     * The stripes of all the agendas are taken together in index order, so two transactions locking overlapping
+     * sets of agendas cannot deadlock, and the ledger rows of each veterinarian are read with one query and the
+     * missing ones created with one flush.
+     *
+     * @throws BookingConflictException as {@link #lockAgenda}
+     */
+    public void lockAgendas(Map<Veterinarian, ? extends Collection<LocalDate>> agendas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Bookings must be guarded inside a transaction");
+        }
+        SortedMap<Integer, Long> stripes = new TreeMap<>();
+        agendas.forEach((veterinarian, days) -> days.forEach(
+                day -> stripes.putIfAbsent(stripe(veterinarian, day), veterinarian.getId())));
+        stripes.forEach((stripe, veterinarianId) -> lock(stripe, String.valueOf(veterinarianId)));
+
+        agendas.forEach(this::lockLedgers);
+    }
+
+    private void lockLedgers(Veterinarian veterinarian, Collection<LocalDate> days) {
+        Set<LocalDate> missing = new HashSet<>(days);
+        for (BookingLedger ledger : bookingLedgerRepository.findByVeterinarianAndBookingDateIn(veterinarian, missing)) {
+            missing.remove(ledger.getBookingDate());
+            locked(ledger);
+        }
+        if (missing.isEmpty()) return;
+        try {
+            bookingLedgerRepository.saveAllAndFlush(missing.stream().map(day -> new BookingLedger(veterinarian, day)).toList())
+                    .forEach(this::created);
+        } catch (DataIntegrityViolationException e) {
+            throw new BookingConflictException("Concurrent booking for veterinarian " + veterinarian.getId() + ", try again");
+        }
+    }
+
+    // The lookups force a version increment at commit
+    private void locked(BookingLedger ledger) {
+        slotAvailabilityIndex.agendaLocked(ledger.getVeterinarian().getId(), ledger.getBookingDate(),
+                ledger.getVersion(), ledger.getVersion() + 1);
+    }
+
+    // A row inserted by this transaction keeps its initial version
+    private void created(BookingLedger ledger) {
+        slotAvailabilityIndex.agendaLocked(ledger.getVeterinarian().getId(), ledger.getBookingDate(), null, ledger.getVersion());
+    }
+
+    private static int stripe(Veterinarian veterinarian, LocalDate day) {
+        return Math.floorMod(Objects.hash(veterinarian.getId(), day), STRIPES);
+    }
+
+    private void lock(int stripe, String agenda) {
+        ReentrantLock lock = locks[stripe];
+        try {
+            if (!lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BookingConflictException("The agenda of veterinarian " + agenda + " is busy, try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingConflictException("Interrupted while waiting for the agenda of veterinarian " + agenda);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes RFC 4180 rows: fields are separated by commas, rows end in CRLF, and fields holding a comma,
+ * quote or line break are quoted with their quotes doubled. Nulls are written as empty fields.
+ * <p>
+ * Text starting with {@code =}, {@code +}, {@code -}, {@code @}, tab or carriage return is prefixed with a single
+ * quote, so a spreadsheet opening the file shows it instead of evaluating it as a formula. Numbers are written
+ * as they are.
+ */
+public class CsvWriter {
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void row(Object... fields) {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) out.write(',');
+                if (fields[i] instanceof Number number) {
+                    out.write(number.toString());
+                } else if (fields[i] != null) {
+                    writeField(neutralized(fields[i].toString()));
+                }
+            }
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String neutralized(String value) {
+        if (value.isEmpty()) return value;
+        return switch (value.charAt(0)) {
+            case '=', '+', '-', '@', '\t', '\r' -> "'" + value;
+            default -> value;
+        };
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,100 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitSearchCommand;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.InvoiceExportInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescriptionExportInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
+import cat.tecnocampus.veterinarymanagement.persistence.InvoiceRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.VisitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * CSV exports of visits, prescriptions and invoices for analysis.
+ * <p>
+ * Rows are flat projections read through a forward-only database cursor and written as soon as they are
+ * read, so no entity is loaded and memory use does not depend on the number of rows exported.
+ * Both ends of the date range are optional and inclusive.
+ * <p>
+ * The cursor keeps a transaction and a connection open for as long as rows are written, which for an HTTP export
+ * includes the time a slow client takes to download them. An export therefore runs for at most
+ * {@code application.exports.timeout-seconds}: the transaction timeout bounds the query, and a row written after
+ * that deadline aborts the export with a {@link TransactionTimedOutException}, releasing the connection.
+ */
+@Service
+public class ExportsService {
+    private final VisitRepository visitRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final Duration timeout;
+
+    public ExportsService(VisitRepository visitRepository,
+                          InvoiceRepository invoiceRepository,
+                          @Value("${application.exports.timeout-seconds:300}") long timeoutSeconds) {
+        if (timeoutSeconds < 1) throw new IllegalArgumentException("application.exports.timeout-seconds must be positive");
+        this.visitRepository = visitRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+    }
+
+    @Transactional(readOnly = true, timeoutString = "${application.exports.timeout-seconds:300}")
+    public void exportVisits(LocalDate from, LocalDate to, CsvWriter csv) {
+        validateRange(from, to);
+        csv.row("visit_id", "visit_date", "visit_time", "duration", "status", "veterinarian_id", "pet_id",
+                "pet_owner_id", "reason", "price_per_fifteen", "treatment_id", "treatment_name", "treatment_cost");
+        try (Stream<VisitScheduleEntryInformation> rows = visitRepository.streamVisits(
+                new VisitSearchCommand(null, null, null, null, from, to))) {
+            writeRows(rows, v -> csv.row(v.visit_id(), v.visitDate(), v.visitTime(), v.duration(), v.status(),
+                    v.veterinarian_id(), v.pet_id(), v.pet_owner_id(), v.reasonForVisit(), v.pricerPerFifteen(),
+                    v.treatment_id(), v.treatment_name(), v.treatment_cost()));
+        }
+    }
+
+    @Transactional(readOnly = true, timeoutString = "${application.exports.timeout-seconds:300}")
+    public void exportPrescriptions(LocalDate from, LocalDate to, CsvWriter csv) {
+        validateRange(from, to);
+        csv.row("prescription_id", "visit_id", "visit_date", "veterinarian_id", "pet_id", "medication_id",
+                "medication_name", "quantity", "dosage_instructions", "duration_in_days");
+        try (Stream<PrescriptionExportInformation> rows = visitRepository.streamPrescriptionExport(from, to)) {
+            writeRows(rows, p -> csv.row(p.prescription_id(), p.visit_id(), p.visit_date(), p.veterinarian_id(),
+                    p.pet_id(), p.medication_id(), p.medication_name(), p.quantity(), p.dosage_instructions(),
+                    p.duration_in_days()));
+        }
+    }
+
+    @Transactional(readOnly = true, timeoutString = "${application.exports.timeout-seconds:300}")
+    public void exportInvoices(LocalDate from, LocalDate to, CsvWriter csv) {
+        validateRange(from, to);
+        csv.row("invoice_id", "invoice_date", "status", "total_amount", "visit_id", "pet_owner_id");
+        try (Stream<InvoiceExportInformation> rows = invoiceRepository.streamInvoiceExport(from, to)) {
+            writeRows(rows, i -> csv.row(i.invoice_id(), i.invoice_date(), i.status(), i.total_amount(),
+                    i.visit_id(), i.pet_owner_id()));
+        }
+    }
+
+    private <T> void writeRows(Stream<T> rows, Consumer<T> writeRow) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        rows.forEach(row -> {
+            if (System.nanoTime() - deadline > 0) {
+                throw new TransactionTimedOutException("Export did not finish within " + timeout.toSeconds() + " seconds");
+            }
+            writeRow.accept(row);
+        });
+    }
+
+    /**
+     * Exports are written after the response has started, so callers check the range beforehand to still be
+     * able to answer with an error.
+     */
+    public void validateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from date must be before or equal to to date");
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.IncompatibilityFingerprintInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationIncompatibilityInformation;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationIncompatibility;
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationIncompatibilityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory graph of the medication incompatibilities, consulted on every prescription instead of the database.
+ * <p>
+ * The graph is an immutable snapshot in compressed adjacency form: the medication ids are kept sorted in a
+ * {@code long[]}, and the neighbours of each one (sorted as well, with the day the incompatibility stops
+ * applying) in flat arrays, so a lookup is a couple of binary searches and allocates nothing but the result.
+ * The snapshot is built with one query on first use and dropped whenever an incompatibility is inserted,
+ * updated or deleted (once that transaction commits); the next lookup rebuilds it.
+ * <p>
+ * Those notifications only cover changes made through this application's entity manager, so changes made by
+ * another instance, a script or a bulk statement are caught by the database itself: a lookup made more than
+ * {@code application.medications.incompatibility.max-staleness} after the last check compares the count and
+ * highest id of the incompatibilities with those the snapshot was built from, and rebuilds it if they differ.
+ * Changes that keep both (an incompatibility edited in place) are picked up by a full rebuild every
+ * {@code application.medications.incompatibility.rebuild-interval}.
+ */
+@Component
+public class IncompatibilityGraph {
+    private static final long INDEFINITE = Long.MAX_VALUE;
+
+    private final MedicationIncompatibilityRepository medicationIncompatibilityRepository;
+    private final long maxStalenessNanos;
+    // The snapshot together with the number of invalidations before it was read, swapped as one value
+    private final AtomicReference<State> state = new AtomicReference<>(new State(0, null, null, 0));
+    private final Counter hits;
+    private final Counter misses;
+
+    public IncompatibilityGraph(MedicationIncompatibilityRepository medicationIncompatibilityRepository,
+                                EntityManagerFactory entityManagerFactory,
+                                MeterRegistry meterRegistry,
+                                @Value("${application.medications.incompatibility.max-staleness:PT1S}") Duration maxStaleness) {
+        this.medicationIncompatibilityRepository = medicationIncompatibilityRepository;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.hits = Counter.builder("medication.incompatibility.graph.lookups")
+                .description("Incompatibility lookups answered by the in-memory graph")
+                .tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("medication.incompatibility.graph.lookups")
+                .description("Incompatibility lookups answered by the in-memory graph")
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("medication.incompatibility.graph.size", this, IncompatibilityGraph::size)
+                .description("Incompatibilities held by the in-memory graph")
+                .register(meterRegistry);
+        registerChangeListener(entityManagerFactory);
+    }
+
+    /**
+     * Incompatibilities in force on {@code on} between {@code medicationId} and any of {@code others},
+     * ordered by the id of the other medication.
+     */
+    public List<MedicationIncompatibilityInformation> conflicts(Long medicationId, Collection<Long> others, LocalDate on) {
+        Snapshot graph = current();
+        int node = Arrays.binarySearch(graph.nodes, medicationId);
+        if (node < 0 || others.isEmpty()) return List.of();
+        long day = on.toEpochDay();
+        List<MedicationIncompatibilityInformation> result = new ArrayList<>();
+        for (int edge = graph.offsets[node]; edge < graph.offsets[node + 1]; edge++) {
+            if (graph.until[edge] < day) continue;
+            if (others.contains(graph.neighbours[edge])) {
+                result.add(graph.incompatibilities.get(graph.incompatibility[edge]));
+            }
+        }
+        return result;
+    }
+
+    public boolean areIncompatible(Long medicationA, Long medicationB, LocalDate on) {
+        return !conflicts(medicationA, List.of(medicationB), on).isEmpty();
+    }
+
+    /**
+     * Number of incompatibilities in the graph, 0 while it is not built.
+     */
+    public int size() {
+        Snapshot graph = state.get().snapshot();
+        return graph == null ? 0 : graph.incompatibilities.size();
+    }
+
+    /**
+     * Drops the graph so it is rebuilt from the database on next use.
+     */
+    public void invalidate() {
+        state.updateAndGet(current -> new State(current.generation() + 1, null, null, 0));
+    }
+
+    @Scheduled(initialDelayString = "${application.medications.incompatibility.rebuild-interval:PT10M}",
+            fixedDelayString = "${application.medications.incompatibility.rebuild-interval:PT10M}")
+    public void rebuild() {
+        invalidate();
+    }
+
+    private Snapshot current() {
+        State read = state.get();
+        long now = System.nanoTime();
+        if (read.snapshot() != null && now - read.checkedAt() < maxStalenessNanos) {
+            hits.increment();
+            return read.snapshot();
+        }
+        // Read before the graph, so a change committed in between makes the next check rebuild again
+        IncompatibilityFingerprintInformation fingerprint = medicationIncompatibilityRepository.findFingerprint();
+        if (read.snapshot() != null && fingerprint.equals(read.fingerprint())) {
+            hits.increment();
+            state.compareAndSet(read, new State(read.generation(), read.snapshot(), fingerprint, now));
+            return read.snapshot();
+        }
+        misses.increment();
+        Snapshot graph = Snapshot.build(medicationIncompatibilityRepository.findAllInformation());
+        // Fails if a change committed while reading, so it is never hidden behind the stale snapshot
+        state.compareAndSet(read, new State(read.generation(), graph, fingerprint, now));
+        return graph;
+    }
+
+    private void registerChangeListener(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener listener = new ChangeListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    private final class ChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof MedicationIncompatibility) invalidate();
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof MedicationIncompatibility) invalidate();
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof MedicationIncompatibility) invalidate();
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return MedicationIncompatibility.class.equals(persister.getMappedClass());
+        }
+    }
+
+    private record State(long generation, Snapshot snapshot, IncompatibilityFingerprintInformation fingerprint,
+                         long checkedAt) {}
+
+    /**
+     * Compressed adjacency: the neighbours of {@code nodes[i]} are {@code neighbours[offsets[i] .. offsets[i + 1])}.
+     */
+    private record Snapshot(long[] nodes, int[] offsets, long[] neighbours, long[] until, int[] incompatibility,
+                            List<MedicationIncompatibilityInformation> incompatibilities) {
+
+        static Snapshot build(List<MedicationIncompatibilityInformation> incompatibilities) {
+            // Every incompatibility is an edge in both directions: (from, to, incompatibility index)
+            int edges = incompatibilities.size() * 2;
+            long[][] pairs = new long[edges][];
+            for (int i = 0; i < incompatibilities.size(); i++) {
+                MedicationIncompatibilityInformation mi = incompatibilities.get(i);
+                pairs[2 * i] = new long[]{mi.medication_a_id(), mi.medication_b_id(), i};
+                pairs[2 * i + 1] = new long[]{mi.medication_b_id(), mi.medication_a_id(), i};
+            }
+            Arrays.sort(pairs, (x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+
+            long[] nodes = Arrays.stream(pairs).mapToLong(pair -> pair[0]).distinct().toArray();
+            int[] offsets = new int[nodes.length + 1];
+            long[] neighbours = new long[edges];
+            long[] until = new long[edges];
+            int[] incompatibility = new int[edges];
+            int node = 0;
+            for (int edge = 0; edge < edges; edge++) {
+                long[] pair = pairs[edge];
+                while (nodes[node] != pair[0]) offsets[++node] = edge;
+                neighbours[edge] = pair[1];
+                incompatibility[edge] = (int) pair[2];
+                LocalDate persistsUntil = incompatibilities.get((int) pair[2]).persists_until();
+                until[edge] = persistsUntil == null ? INDEFINITE : persistsUntil.toEpochDay();
+            }
+            offsets[nodes.length] = edges;
+            return new Snapshot(nodes, offsets, neighbours, until, incompatibility, List.copyOf(incompatibilities));
+        }
+    }
+}
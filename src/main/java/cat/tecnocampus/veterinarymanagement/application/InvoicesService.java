@@ -44,7 +44,7 @@ public class InvoicesService {
             throw new VisitDoesNotExistException("Visit id must be provided to create an invoice");
         }
 
-        Visit visit = visitRepository.findById(command.visit_id())
+        Visit visit = visitRepository.findWithPrescriptionsById(command.visit_id())
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + command.visit_id() + " does not exist"));
 
         // Check if invoice already exists for this visit
@@ -0,0 +1,175 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates low stock alerts off the prescription path.
+ * <p>
+ * {@link MedicationStockChangedEvent}s are taken once the transaction that changed the stock commits and queued
+ * for evaluation on the application task executor, by one drain task at a time. A medication already waiting in
+ * the queue is not queued again, so a burst of changes to the same medication costs one evaluation. The queue is
+ * bounded ({@code application.medications.low-stock.queue-capacity}); when it is full the event is dropped and
+ * counted. Every {@code application.medications.low-stock.sweep-interval} the medications whose alert does not
+ * match their stock level, among them those whose events were dropped, are evaluated again.
+ * <p>
+ * Metrics: {@code medication.low-stock.queue.depth}, {@code medication.low-stock.lag} (from commit to evaluation),
+ * {@code medication.low-stock.events} tagged {@code result=queued|coalesced|dropped|failed} and
+ * {@code medication.low-stock.recovered} (alerts fixed by the sweep).
+ */
+@Component
+public class LowStockAlertWorker {
+    private final MedicationsService medicationsService;
+    private final MedicationRepository medicationRepository;
+    private final Executor executor;
+    private final BlockingQueue<Long> queue;
+    private final Map<Long, Long> pendingSince = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Timer lag;
+    private final Counter queued;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter recovered;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    public LowStockAlertWorker(MedicationsService medicationsService,
+                               MedicationRepository medicationRepository,
+                               @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.medications.low-stock.queue-capacity:1000}") int capacity) {
+        this.medicationsService = medicationsService;
+        this.medicationRepository = medicationRepository;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.lag = Timer.builder("medication.low-stock.lag")
+                .description("Time from a committed stock change to its low stock evaluation")
+                .register(meterRegistry);
+        this.queued = events(meterRegistry, "queued");
+        this.coalesced = events(meterRegistry, "coalesced");
+        this.dropped = events(meterRegistry, "dropped");
+        this.failed = events(meterRegistry, "failed");
+        this.recovered = Counter.builder("medication.low-stock.recovered")
+                .description("Low stock alerts out of date with the stock level brought up to date by the sweep")
+                .register(meterRegistry);
+        Gauge.builder("medication.low-stock.queue.depth", queue, BlockingQueue::size)
+                .description("Medications waiting for their low stock evaluation")
+                .register(meterRegistry);
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("medication.low-stock.events")
+                .description("Stock change events received by the low stock worker")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(MedicationStockChangedEvent event) {
+        Long medicationId = event.medicationId();
+        if (pendingSince.putIfAbsent(medicationId, System.nanoTime()) != null) {
+            coalesced.increment();
+            return;
+        }
+        outstanding.incrementAndGet();
+        if (queue.offer(medicationId)) {
+            queued.increment();
+            drainLater();
+        } else {
+            outstanding.decrementAndGet();
+            pendingSince.remove(medicationId);
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Waits until every queued medication has been evaluated.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (outstanding.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates again every medication whose low stock alert does not match its stock level.
+     *
+     * @return how many alerts were brought up to date
+     */
+    @Scheduled(initialDelayString = "${application.medications.low-stock.sweep-interval:PT5M}",
+            fixedDelayString = "${application.medications.low-stock.sweep-interval:PT5M}")
+    public int sweep() {
+        int fixed = 0;
+        for (Long medicationId : medicationRepository.findIdsWithStaleLowStockAlert()) {
+            try {
+                medicationsService.refreshLowStockAlert(medicationId);
+                fixed++;
+            } catch (RuntimeException e) {
+                failed.increment();
+            }
+        }
+        recovered.increment(fixed);
+        return fixed;
+    }
+
+    private void drainLater() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: whatever is left is picked up by the sweep after the restart
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            Long medicationId;
+            while ((medicationId = queue.poll()) != null) {
+                evaluate(medicationId);
+            }
+        } finally {
+            draining.set(false);
+        }
+        // A medication queued after the last poll but before the flag was cleared found a drain still running
+        if (!queue.isEmpty()) drainLater();
+    }
+
+    private void evaluate(Long medicationId) {
+        try {
+            // Changes arriving from now on queue the medication again
+            Long since = pendingSince.remove(medicationId);
+            if (since != null) lag.record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+            medicationsService.refreshLowStockAlert(medicationId);
+        } catch (RuntimeException e) {
+            failed.increment();
+        } finally {
+            outstanding.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+/**
+ * Published whenever the units on hand of a medication change (batch created, updated or deleted, stock deducted).
+ */
+public record MedicationStockChangedEvent(Long medicationId) {}
@@ -0,0 +1,115 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.domain.MedicationStockLevel;
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationStockLevelRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Maintains the {@link MedicationStockLevel} of every medication.
+ * <p>
+ * Batch changes report their delta with {@link #adjust}, an atomic increment of one row in the caller's transaction.
+ * A medication's row is created from its batches the first time it is needed; concurrent first uses queue on the
+ * medication's row, so the later ones add their delta to the row the first one created. The reconciliation
+ * recomputes the rows from the batches in the database, after locking them so that no batch change in flight is
+ * lost, and counts how many of them had drifted ({@code medication.stock.drift}), which only happens when batches
+ * are written behind the application's back.
+ */
+@Service
+public class MedicationStockLevelService {
+    private final MedicationStockLevelRepository medicationStockLevelRepository;
+    private final MedicationRepository medicationRepository;
+    private final Counter drift;
+
+    public MedicationStockLevelService(MedicationStockLevelRepository medicationStockLevelRepository,
+                                       MedicationRepository medicationRepository,
+                                       MeterRegistry meterRegistry) {
+        this.medicationStockLevelRepository = medicationStockLevelRepository;
+        this.medicationRepository = medicationRepository;
+        this.drift = Counter.builder("medication.stock.drift")
+                .description("Stock levels found out of sync with the batches by the reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds {@code delta} units to the medication's stock level. Must be called after the batch change is
+     * done in the same transaction.
+     */
+    @Transactional
+    public void adjust(Long medicationId, int delta) {
+        if (delta == 0) return;
+        if (medicationStockLevelRepository.addQuantity(medicationId, delta) == 0 && !create(medicationId)) {
+            // Created meanwhile by another transaction, from batches that did not include this change yet
+            medicationStockLevelRepository.addQuantity(medicationId, delta);
+        }
+    }
+
+    @Transactional
+    public int quantity(Long medicationId) {
+        return medicationStockLevelRepository.findQuantityByMedicationId(medicationId)
+                .orElseGet(() -> {
+                    create(medicationId);
+                    return medicationStockLevelRepository.findQuantityByMedicationId(medicationId).orElse(0);
+                });
+    }
+
+    @Transactional
+    public MedicationStockLevel level(Long medicationId) {
+        return medicationStockLevelRepository.findById(medicationId)
+                .orElseGet(() -> {
+                    create(medicationId);
+                    return medicationStockLevelRepository.findById(medicationId).orElseThrow();
+                });
+    }
+
+    /**
+     * Recomputes the medication's stock level from its batches.
+     */
+    @Transactional
+    public void reconcile(Long medicationId) {
+        Optional<Integer> stored = medicationStockLevelRepository.lockQuantityByMedicationId(medicationId);
+        if (stored.isEmpty()) {
+            create(medicationId);
+            return;
+        }
+        medicationStockLevelRepository.reconcile(medicationId, LocalDateTime.now());
+        if (!stored.get().equals(medicationStockLevelRepository.findQuantityByMedicationId(medicationId).orElseThrow())) {
+            drift.increment();
+        }
+    }
+
+    /**
+     * Recomputes every stock level from the batches with one statement.
+     *
+     * @return how many stock levels had drifted
+     */
+    @Scheduled(initialDelayString = "${application.medications.stock.reconcile-interval:PT1H}",
+            fixedDelayString = "${application.medications.stock.reconcile-interval:PT1H}")
+    @Transactional
+    public int reconcileAll() {
+        medicationStockLevelRepository.lockAll();
+        int drifted = (int) medicationStockLevelRepository.countDrifted();
+        medicationStockLevelRepository.reconcileAll(LocalDateTime.now());
+        drift.increment(drifted);
+        return drifted;
+    }
+
+    /**
+     * Creates the medication's stock level from its batches, unless another transaction did it first.
+     *
+     * @return whether this transaction created it
+     */
+    private boolean create(Long medicationId) {
+        medicationRepository.lockById(medicationId);
+        if (medicationStockLevelRepository.insertIfAbsent(medicationId) == 0) return false;
+        medicationStockLevelRepository.reconcile(medicationId, LocalDateTime.now());
+        return true;
+    }
+}
@@ -5,35 +5,60 @@ import cat.tecnocampus.veterinarymanagement.application.inputDTO.MedicationBatch
 import cat.tecnocampus.veterinarymanagement.application.mappers.MedicationBatchMapper;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationBatchInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationStockInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationWriteOffReportInformation;
 import cat.tecnocampus.veterinarymanagement.domain.LowStockAlert;
 import cat.tecnocampus.veterinarymanagement.domain.Medication;
 import cat.tecnocampus.veterinarymanagement.domain.MedicationBatch;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationStockLevel;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationWriteOff;
+import cat.tecnocampus.veterinarymanagement.domain.StockAllocation;
 import cat.tecnocampus.veterinarymanagement.persistence.LowStockAlertRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.MedicationBatchRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.MedicationRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationWriteOffRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 public class MedicationsService {
     private final MedicationRepository medicationRepository;
     private final MedicationBatchRepository medicationBatchRepository;
     private final LowStockAlertRepository lowStockAlertRepository;
+    private final MedicationStockLevelService medicationStockLevelService;
+    private final MedicationWriteOffRepository medicationWriteOffRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_EXPIRING_DAYS = 365;
+    private static final int MAX_IMPORT_SIZE = 1000;
 
     public MedicationsService(MedicationRepository medicationRepository,
                               MedicationBatchRepository medicationBatchRepository,
-                              LowStockAlertRepository lowStockAlertRepository) {
+                              LowStockAlertRepository lowStockAlertRepository,
+                              MedicationStockLevelService medicationStockLevelService,
+                              MedicationWriteOffRepository medicationWriteOffRepository,
+                              ApplicationEventPublisher eventPublisher) {
         this.medicationRepository = medicationRepository;
         this.medicationBatchRepository = medicationBatchRepository;
         this.lowStockAlertRepository = lowStockAlertRepository;
+        this.medicationStockLevelService = medicationStockLevelService;
+        this.medicationWriteOffRepository = medicationWriteOffRepository;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Cacheable(cacheNames = "medications", unless = "#result == null")
     public Optional<MedicationInformation> getMedicationById(Long id) {
         return medicationRepository.findMedicationInformationById(id);
     }
@@ -44,6 +69,16 @@ public class MedicationsService {
                 .map(MedicationBatchMapper::toMedicationBatchInformation);
     }
 
+    public MedicationStockInformation getMedicationStock(Long medId) {
+        Medication med = medicationRepository
+                .findById(medId)
+                .orElseThrow(() -> new MedicationDoesNotExistException("Medication with id " + medId + " does not exist"));
+        MedicationStockLevel level = medicationStockLevelService.level(medId);
+        return new MedicationStockInformation(medId, level.getQuantity(), med.getReorderThreshold(),
+                level.getQuantity() < med.getReorderThreshold(), level.getReconciledAt());
+    }
+
+    @Transactional
     public Long createMedicationBatch(Long medId, MedicationBatchCommand command) {
         Medication med = medicationRepository
                 .findById(medId)
@@ -51,9 +86,31 @@ public class MedicationsService {
 
         MedicationBatch batch = MedicationBatchMapper.inputMedicationBatchToDomain(command, med);
         var saved = medicationBatchRepository.save(batch);
+        stockChanged(medId, quantityOf(saved));
         return saved.getId();
     }
 
+    /**
+     * Creates all the batches of the medication or none of them. The batches are inserted in JDBC batches and
+     * the stock level is adjusted once with their total quantity.
+     */
+    @Transactional
+    public List<Long> importMedicationBatches(Long medId, List<MedicationBatchCommand> commands) {
+        if (commands == null || commands.isEmpty() || commands.size() > MAX_IMPORT_SIZE) {
+            throw new IllegalArgumentException("An import must have between 1 and " + MAX_IMPORT_SIZE + " batches");
+        }
+        Medication med = medicationRepository
+                .findById(medId)
+                .orElseThrow(() -> new MedicationDoesNotExistException("Medication with id " + medId + " does not exist"));
+
+        List<MedicationBatch> batches = commands.stream()
+                .map(command -> MedicationBatchMapper.inputMedicationBatchToDomain(command, med))
+                .toList();
+        medicationBatchRepository.saveAll(batches);
+        stockChanged(medId, batches.stream().mapToInt(MedicationsService::quantityOf).sum());
+        return batches.stream().map(MedicationBatch::getId).toList();
+    }
+
     public List<MedicationBatchInformation> getMedicationBatches(Long medId) {
         Medication med = medicationRepository
                 .findById(medId)
@@ -65,81 +122,124 @@ public class MedicationsService {
                 .toList();
     }
 
+    @Transactional
     public MedicationBatchInformation updateMedicationBatch(Long batchId, MedicationBatchCommand command) {
         MedicationBatch batch = medicationBatchRepository.findById(batchId)
                 .orElseThrow(() -> new MedicationBatchDoesNotExistException("Medication batch with id " + batchId + " does not exist"));
+        int previousQuantity = quantityOf(batch);
         batch.updateMedicationBatch(command);
         medicationBatchRepository.save(batch);
-        checkAndUpdateLowStockAlert(batch.getMedication().getId());
+        stockChanged(batch.getMedication().getId(), quantityOf(batch) - previousQuantity);
         return MedicationBatchMapper.toMedicationBatchInformation(batch);
     }
 
+    @Transactional
     public void deleteMedicationBatch(Long batchId) {
         MedicationBatch batch = medicationBatchRepository.findById(batchId)
                 .orElseThrow(() -> new MedicationBatchDoesNotExistException("Medication batch with id " + batchId + " does not exist"));
         medicationBatchRepository.delete(batch);
+        stockChanged(batch.getMedication().getId(), -quantityOf(batch));
+    }
+
+    /**
+     * Updates the stock level and, once the transaction commits, lets the {@link LowStockAlertWorker}
+     * re-evaluate the medication's low stock alert.
+     */
+    private void stockChanged(Long medId, int delta) {
+        if (delta == 0) return;
+        medicationStockLevelService.adjust(medId, delta);
+        eventPublisher.publishEvent(new MedicationStockChangedEvent(medId));
+    }
+
+    /**
+     * Batches with stock left that expire within the next {@code days} days, soonest first.
+     */
+    public List<MedicationBatchInformation> getExpiringBatches(int days) {
+        if (days < 0 || days > MAX_EXPIRING_DAYS) {
+            throw new IllegalArgumentException("days must be between 0 and " + MAX_EXPIRING_DAYS);
+        }
+        LocalDate today = LocalDate.now();
+        return medicationBatchRepository.findExpiringBetween(today, today.plusDays(days)).stream()
+                .map(MedicationBatchMapper::toMedicationBatchInformation)
+                .toList();
+    }
+
+    public List<MedicationWriteOffReportInformation> getWriteOffReport(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must be before or equal to to");
+        }
+        return medicationWriteOffRepository.findWriteOffReport(from, to);
+    }
+
+    /**
+     * Scheduled sweep ({@code application.medications.expiry-sweep.cron}) retiring the batches expired until today.
+     */
+    @Scheduled(cron = "${application.medications.expiry-sweep.cron:0 15 0 * * *}")
+    @Transactional
+    public int writeOffExpiredBatches() {
+        return writeOffExpiredBatches(LocalDate.now());
+    }
+
+    /**
+     * Retires every batch that expired on or before {@code today} with stock left: the stock is recorded in the
+     * write-off ledger (quantity times purchase price), the batches are deleted with one statement and the stock
+     * levels of their medications are lowered.
+     *
+     * @return the number of batches written off
+     */
+    @Transactional
+    public int writeOffExpiredBatches(LocalDate today) {
+        List<MedicationBatch> expired = medicationBatchRepository.findExpiredWithStock(today);
+        if (expired.isEmpty()) return 0;
+
+        medicationWriteOffRepository.saveAll(expired.stream()
+                .map(batch -> new MedicationWriteOff(batch, today))
+                .toList());
+        medicationBatchRepository.deleteAllInBatch(expired);
+
+        Map<Long, Integer> writtenOff = expired.stream().collect(Collectors.groupingBy(
+                batch -> batch.getMedication().getId(), TreeMap::new, Collectors.summingInt(MedicationsService::quantityOf)));
+        writtenOff.forEach((medId, quantity) -> stockChanged(medId, -quantity));
+        return expired.size();
     }
 
+    private static int quantityOf(MedicationBatch batch) {
+        return batch.getCurrentQuantity() != null ? batch.getCurrentQuantity() : 0;
+    }
 
+
+    /**
+     * Deducts the quantity from the medication's batches, first expired first out.
+     * <p>
+     * The usable batches are locked in expiry order, the allocation is computed in memory and written back in one
+     * flush: the partial batches as a JDBC batch of updates and the emptied ones as a batch of deletes. Concurrent
+     * deductions of the same medication wait for the lock, so stock is never oversold. The low stock alert is
+     * re-evaluated asynchronously once the transaction commits.
+     */
     @Transactional
     public void updateMedicationStock(Long medId, int quantityToDeduct) {
         if (quantityToDeduct <= 0) {
             throw new IllegalArgumentException("Quantity to deduct must be positive");
         }
-        Medication med = medicationRepository
-                .findById(medId)
-                .orElseThrow(() -> new MedicationDoesNotExistException("Medication with id " + medId + " does not exist"));
+        if (!medicationRepository.existsById(medId)) {
+            throw new MedicationDoesNotExistException("Medication with id " + medId + " does not exist");
+        }
 
-        List<MedicationBatch> availableBatches = medicationBatchRepository.findAvailableBatchesByMedication(med);
+        List<MedicationBatch> availableBatches = medicationBatchRepository.lockAvailableBatchesByMedication(medId, LocalDate.now());
         if (availableBatches.isEmpty()) {
             throw new NotEnoughMedicationInBatchesException("No available batches for medication " + medId);
         }
 
-        int totalAvailable = availableBatches.stream().mapToInt(MedicationBatch::getCurrentQuantity).sum();
-        if (totalAvailable < quantityToDeduct) {
-            throw new NotEnoughMedicationInBatchesException("Insufficient stock in batches. Required: " + quantityToDeduct + ", available: " + totalAvailable);
+        StockAllocation allocation = StockAllocation.firstExpiredFirstOut(availableBatches, quantityToDeduct);
+        if (!allocation.isComplete()) {
+            throw new NotEnoughMedicationInBatchesException("Insufficient stock in batches. Required: " + quantityToDeduct + ", available: " + allocation.allocated());
         }
 
-        int deducted = 0;
-
-        MedicationBatch firstBatch = availableBatches.getFirst();
-        if (firstBatch.getCurrentQuantity() >= quantityToDeduct) { // simple path: first batch covers all
-            firstBatch.setCurrentQuantity(firstBatch.getCurrentQuantity() - quantityToDeduct);
-            deducted = quantityToDeduct;
-            medicationBatchRepository.save(firstBatch);
-            if (firstBatch.getCurrentQuantity() == 0) {
-                deleteMedicationBatch(firstBatch.getId());
-            }
-        } else { // distribute across batches
-            int remaining = quantityToDeduct;
-            for (MedicationBatch batch : availableBatches) {
-                if (remaining == 0) break;
-                if (batch.getCurrentQuantity() >= remaining) { // this batch completes what's missing
-                    batch.setCurrentQuantity(batch.getCurrentQuantity() - remaining);
-                    deducted += remaining;
-                    remaining = 0;
-                    medicationBatchRepository.save(batch);
-                    if (batch.getCurrentQuantity() == 0) {
-                        deleteMedicationBatch(batch.getId());
-                    }
-                    break;
-                } else { // consume entire batch and continue
-                    remaining -= batch.getCurrentQuantity();
-                    deducted += batch.getCurrentQuantity();
-                    batch.setCurrentQuantity(0);
-                    medicationBatchRepository.save(batch);
-                    deleteMedicationBatch(batch.getId());
-                }
-            }
-        }
-
-        if (deducted < quantityToDeduct) {
-            // Defensive: should not happen due to earlier totalAvailable check, but ensures rollback if it does
-            throw new NotEnoughMedicationInBatchesException("Could not deduct full quantity. Deducted: " + deducted + ", required: " + quantityToDeduct);
-        }
-
-        checkAndUpdateLowStockAlert(medId);
+        List<MedicationBatch> emptied = allocation.apply();
+        medicationBatchRepository.deleteAll(emptied);
+        stockChanged(medId, -quantityToDeduct);
     }
+
     public LowStockAlert getLowStockAlertByMedicationId(Long medicationId) {
         Medication med = medicationRepository.findById(medicationId)
                 .orElseThrow(() -> new LowStockAlertDoesNotExistException("Medication not found"));
@@ -178,26 +278,41 @@ public class MedicationsService {
         }
     }
 
+    /**
+     * Reconciles the medication's stock level with its batches and raises or clears its low stock alert.
+     */
     public void checkAndUpdateLowStockAlert(Long medicationId) {
         try {
             Medication med = medicationRepository.findById(medicationId)
                     .orElseThrow(() -> new MedicationDoesNotExistException("Medication not found"));
-            int totalQuantity = medicationBatchRepository.findByMedication(med).stream()
-                    .mapToInt(batch -> batch.getCurrentQuantity() != null ? batch.getCurrentQuantity() : 0)
-                    .sum();
-            int threshold = med.getReorderThreshold();
-            LowStockAlert existingAlert = lowStockAlertRepository.findByMedication(med).stream().findFirst().orElse(null);
-            if (totalQuantity < threshold && existingAlert == null) {
-                LowStockAlert alert = new LowStockAlert();
-                alert.setMedication(med);
-                alert.setAlertDate(LocalDate.now());
-                alert.setAcknowledged(false);
-                lowStockAlertRepository.save(alert);
-            } else if (totalQuantity >= threshold && existingAlert != null) {
-                lowStockAlertRepository.deleteById(existingAlert.getId());
-            }
+            medicationStockLevelService.reconcile(medicationId);
+            updateLowStockAlert(med);
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error checking/updating low stock alert for medication with id " + medicationId, e);
         }
     }
+
+    /**
+     * Raises or clears the medication's low stock alert from its maintained stock level.
+     * Called by the {@link LowStockAlertWorker} after stock changes.
+     */
+    @Transactional
+    public void refreshLowStockAlert(Long medicationId) {
+        medicationRepository.findById(medicationId).ifPresent(this::updateLowStockAlert);
+    }
+
+    private void updateLowStockAlert(Medication med) {
+        int totalQuantity = medicationStockLevelService.quantity(med.getId());
+        int threshold = med.getReorderThreshold();
+        LowStockAlert existingAlert = lowStockAlertRepository.findByMedication(med).stream().findFirst().orElse(null);
+        if (totalQuantity < threshold && existingAlert == null) {
+            LowStockAlert alert = new LowStockAlert();
+            alert.setMedication(med);
+            alert.setAlertDate(LocalDate.now());
+            alert.setAcknowledged(false);
+            lowStockAlertRepository.save(alert);
+        } else if (totalQuantity >= threshold && existingAlert != null) {
+            lowStockAlertRepository.deleteById(existingAlert.getId());
+        }
+    }
 }
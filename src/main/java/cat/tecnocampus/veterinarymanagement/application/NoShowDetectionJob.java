@@ -0,0 +1,77 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.domain.Visit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Marks as not showed up the visits still scheduled a grace period ({@code application.visits.no-show.grace-period})
+ * after their start, every {@code application.visits.no-show.interval}.
+ * <p>
+ * Overdue visits are processed in pages of {@code application.visits.no-show.page-size}, each in its own
+ * transaction, so a backlog never holds a long transaction. A visit started or cancelled while its page is being
+ * processed keeps its new status; a run stops at the first page that marks fewer visits than the page size, and the
+ * next run picks up whatever is left. Metrics: {@code visits.no-show.detected} and
+ * {@code visits.no-show.run}.
+ */
+@Component
+public class NoShowDetectionJob {
+    private final VisitsService visitsService;
+    private final Duration gracePeriod;
+    private final int pageSize;
+    private final Counter detected;
+    private final Timer run;
+
+    public NoShowDetectionJob(VisitsService visitsService,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.visits.no-show.grace-period:PT15M}") Duration gracePeriod,
+                              @Value("${application.visits.no-show.page-size:200}") int pageSize) {
+        if (gracePeriod.compareTo(Visit.NO_SHOW_DELAY) < 0) {
+            throw new IllegalArgumentException("application.visits.no-show.grace-period must be at least " + Visit.NO_SHOW_DELAY);
+        }
+        if (pageSize < 1) throw new IllegalArgumentException("application.visits.no-show.page-size must be positive");
+        this.visitsService = visitsService;
+        this.gracePeriod = gracePeriod;
+        this.pageSize = pageSize;
+        this.detected = Counter.builder("visits.no-show.detected")
+                .description("Visits marked as not showed up by the no-show detection")
+                .register(meterRegistry);
+        this.run = Timer.builder("visits.no-show.run")
+                .description("Duration of the no-show detection runs")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${application.visits.no-show.interval:PT5M}",
+            fixedDelayString = "${application.visits.no-show.interval:PT5M}")
+    public int detectNoShows() {
+        return detectNoShows(LocalDateTime.now());
+    }
+
+    /**
+     * Marks every visit scheduled at or before {@code now} minus the grace period.
+     *
+     * @return how many visits were marked
+     */
+    public int detectNoShows(LocalDateTime now) {
+        Timer.Sample sample = Timer.start();
+        try {
+            int total = 0;
+            int marked;
+            do {
+                marked = visitsService.markOverdueVisitsAsNotShowedUp(now, gracePeriod, pageSize);
+                detected.increment(marked);
+                total += marked;
+            } while (marked == pageSize);
+            return total;
+        } finally {
+            sample.stop(run);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.domain.MedicationPrescription;
+import cat.tecnocampus.veterinarymanagement.domain.PrescriptionDailyRollup;
+import cat.tecnocampus.veterinarymanagement.domain.Visit;
+import cat.tecnocampus.veterinarymanagement.persistence.MedicationRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.PrescriptionDailyRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains the {@link PrescriptionDailyRollup} rows the prescription reports (UC2.6, UC2.7) are answered from.
+ * <p>
+ * Every prescription added to or removed from a visit is counted on the visit's day, medication and
+ * veterinarian in the caller's transaction. A visit cannot change day or veterinarian once it has prescriptions
+ * (only scheduled visits are rescheduled, and they cannot have any), so those are the only changes to follow.
+ * The first prescription of a row creates it on the caller's connection while holding the medication's row lock,
+ * so concurrent first prescriptions wait for one another instead of each holding a second pooled connection.
+ * The rows are backfilled from the prescriptions when the application starts with none of them, and the
+ * reconciliation job fixes every row that drifted from them ({@code prescriptions.rollup.drift}), which only
+ * happens when prescriptions are written behind the application's back.
+ */
+@Service
+public class PrescriptionRollupService {
+    private final PrescriptionDailyRollupRepository prescriptionDailyRollupRepository;
+    private final MedicationRepository medicationRepository;
+    private final Counter drift;
+
+    public PrescriptionRollupService(PrescriptionDailyRollupRepository prescriptionDailyRollupRepository,
+                                     MedicationRepository medicationRepository,
+                                     MeterRegistry meterRegistry) {
+        this.prescriptionDailyRollupRepository = prescriptionDailyRollupRepository;
+        this.medicationRepository = medicationRepository;
+        this.drift = Counter.builder("prescriptions.rollup.drift")
+                .description("Prescription rollup rows found out of sync with the prescriptions by the reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public void prescriptionAdded(Visit visit, MedicationPrescription prescription) {
+        count(visit, prescription, 1);
+    }
+
+    @Transactional
+    public void prescriptionRemoved(Visit visit, MedicationPrescription prescription) {
+        count(visit, prescription, -1);
+    }
+
+    /**
+     * Recomputes every rollup row from the prescriptions.
+     *
+     * @return the number of rows created
+     */
+    @Transactional
+    public int backfill() {
+        prescriptionDailyRollupRepository.deleteAllInBatch();
+        return prescriptionDailyRollupRepository.backfill();
+    }
+
+    /**
+     * Recomputes the rows that differ from the prescriptions and creates the missing ones.
+     *
+     * @return how many rows had drifted
+     */
+    @Scheduled(initialDelayString = "${application.prescriptions.rollup.reconcile-interval:PT6H}",
+            fixedDelayString = "${application.prescriptions.rollup.reconcile-interval:PT6H}")
+    @Transactional
+    public int reconcileAll() {
+        int drifted = prescriptionDailyRollupRepository.reconcileCounts() + prescriptionDailyRollupRepository.insertMissing();
+        drift.increment(drifted);
+        return drifted;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (prescriptionDailyRollupRepository.count() == 0) {
+            prescriptionDailyRollupRepository.backfill();
+        }
+    }
+
+    private void count(Visit visit, MedicationPrescription prescription, int delta) {
+        Long medicationId = prescription.getMedication().getId();
+        Long veterinarianId = visit.getVeterinarian() != null ? visit.getVeterinarian().getId() : null;
+        if (prescriptionDailyRollupRepository.addPrescriptions(visit.getVisitDate(), medicationId, veterinarianId, delta) == 0
+                && delta > 0) {
+            // First prescription of the row: concurrent ones queue on the medication's row and only the first creates it
+            medicationRepository.lockById(medicationId);
+            prescriptionDailyRollupRepository.insertEmptyIfAbsent(visit.getVisitDate(), medicationId, veterinarianId);
+            prescriptionDailyRollupRepository.addPrescriptions(visit.getVisitDate(), medicationId, veterinarianId, delta);
+        }
+    }
+}
@@ -17,6 +17,8 @@ import cat.tecnocampus.veterinarymanagement.domain.Promotion;
 import cat.tecnocampus.veterinarymanagement.persistence.DiscountRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.LoyaltyTierRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.PromotionRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.stereotype.Service;
 
@@ -42,6 +44,7 @@ public class PromotionsService {
         return promotion.getId();
     }
 
+    @Cacheable(cacheNames = "promotions", unless = "#result == null")
     public Optional<PromotionInformation> getPromotionById(Long id) {
         return promotionRepository.findById(id)
                 .map(PromotionMapper::toPromotionInformation);
@@ -60,6 +63,7 @@ public class PromotionsService {
         }
     }
 
+    @Cacheable(cacheNames = "discounts", unless = "#result == null")
     public Optional<DiscountInformation> getDiscountById(Long id) {
         return discountRepository.findDiscountById(id)
                 .map(DiscountMapper::toDiscountInformation);
@@ -76,6 +80,7 @@ public class PromotionsService {
                 .toList();
     }
 
+    @CacheEvict(cacheNames = "discounts", key = "#discountId")
     public DiscountInformation updateDiscount(Long discountId, DiscountCommand command) {
         try {
             Discount discount = discountRepository.findById(discountId)
@@ -88,6 +93,7 @@ public class PromotionsService {
         }
     }
 
+    @CacheEvict(cacheNames = "discounts", allEntries = true)
     public void deleteDiscounts(Long promotionId) {
         Promotion promotion = promotionRepository
                 .findById(promotionId)
@@ -0,0 +1,310 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.application.exceptions.VisitSlotUnavailableException;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation;
+import cat.tecnocampus.veterinarymanagement.domain.Availability;
+import cat.tecnocampus.veterinarymanagement.domain.AvailabilityException;
+import cat.tecnocampus.veterinarymanagement.domain.DaySlots;
+import cat.tecnocampus.veterinarymanagement.persistence.AvailabilityRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.VisitRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of every veterinarian's free time, one {@link DaySlots} per veterinarian and day.
+ * <p>
+ * A day is loaded on first use (availabilities with their exceptions plus the non-cancelled visits, two
+ * queries) and afterwards kept up to date incrementally: bookings are added, moved and released when the
+ * visit transaction commits, and any change in a veterinarian's availabilities drops that veterinarian's
+ * days so they are reloaded on next use.
+ * <p>
+ * Until then, the bookings of the running transaction are kept apart and checked along with the committed ones,
+ * so a transaction that books several visits (an import, a recurring series) cannot overlap them with each other.
+ * <p>
+ * Days are loaded outside the cache's locks and installed only if no change of that day (or of any schedule)
+ * committed while they were read, so a load racing a commit cannot cache a day that misses it. At most
+ * {@value #MAX_CACHED_DAYS} days are kept; the least used ones are dropped first.
+ * <p>
+ * Other instances do not update this index. A cached day is therefore stamped with the version of its
+ * {@link cat.tecnocampus.veterinarymanagement.domain.BookingLedger} row. While a transaction holds the day's agenda
+ * ({@link #agendaLocked}), a cached day stamped with another version is reloaded before it is used.
+ */
+@Component
+public class SlotAvailabilityIndex {
+    private static final int MAX_CACHED_DAYS = 20_000;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private record DayKey(Long veterinarianId, LocalDate date) {}
+
+    private record LedgerStamp(Long seen, long committed) {}
+
+    /**
+     * What the running transaction adds to the index: its own bookings and the ledger versions of the agendas it holds.
+     */
+    private static final class Pending {
+        private final Map<DayKey, DaySlots> bookings = new HashMap<>();
+        private final Map<DayKey, LedgerStamp> ledger = new HashMap<>();
+    }
+
+    private final Cache<DayKey, DaySlots> days = Caffeine.newBuilder().maximumSize(MAX_CACHED_DAYS).build();
+    // Bumped before a committed change is applied: per stripe of days for bookings, once for any schedule change
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong scheduleGeneration = new AtomicLong();
+    private final AvailabilityRepository availabilityRepository;
+    private final VisitRepository visitRepository;
+
+    public SlotAvailabilityIndex(AvailabilityRepository availabilityRepository, VisitRepository visitRepository) {
+        this.availabilityRepository = availabilityRepository;
+        this.visitRepository = visitRepository;
+    }
+
+    public boolean isFree(Long veterinarianId, LocalDate date, LocalTime start, LocalTime end, Long excludingVisitId) {
+        if (end.isBefore(start)) return false;
+        int duration = (int) Duration.between(start, end).toMinutes();
+        DaySlots pending = pendingDay(veterinarianId, date);
+        return day(veterinarianId, date).isFree(start, duration, excludingVisitId)
+                && (pending == null || !pending.overlapsBooking(start, duration, excludingVisitId));
+    }
+
+    /**
+     * @throws VisitSlotUnavailableException if the veterinarian does not work the whole slot or another
+     *                                       visit (other than {@code excludingVisitId}) overlaps it
+     */
+    public void validateSlot(Long veterinarianId, LocalDate date, LocalTime start, int durationMinutes, Long excludingVisitId) {
+        DaySlots slots = day(veterinarianId, date);
+        if (!slots.isOpen(start, durationMinutes)) {
+            throw new VisitSlotUnavailableException("Veterinarian has no available slot for the requested time");
+        }
+        DaySlots pending = pendingDay(veterinarianId, date);
+        if (slots.overlapsBooking(start, durationMinutes, excludingVisitId)
+                || (pending != null && pending.overlapsBooking(start, durationMinutes, excludingVisitId))) {
+            throw new VisitSlotUnavailableException("overlaps with another visit");
+        }
+    }
+
+    public Optional<LocalTime> firstFreeSlot(Long veterinarianId, LocalDate date, LocalTime from, int durationMinutes) {
+        return day(veterinarianId, date).firstFreeSlot(from, durationMinutes);
+    }
+
+    /**
+     * Loads the veterinarian's days among {@code dates} that are not in the index yet, with two queries for the
+     * whole window instead of two per day. Callers booking on those days should hold their agendas
+     * ({@link BookingGuard}) so no booking of them commits while they are read.
+     */
+    public void preload(Long veterinarianId, Collection<LocalDate> dates) {
+        List<LocalDate> missing = dates.stream()
+                .filter(date -> cached(new DayKey(veterinarianId, date)) == null)
+                .distinct().sorted().toList();
+        if (missing.isEmpty()) return;
+        long scheduleSeen = scheduleGeneration.get();
+        Map<LocalDate, Long> seen = missing.stream()
+                .collect(Collectors.toMap(date -> date, date -> generations.get(stripe(new DayKey(veterinarianId, date)))));
+        LocalDate from = missing.get(0);
+        LocalDate to = missing.get(missing.size() - 1);
+        List<Availability> availabilities = availabilityRepository.findWithExceptionsByVeterinarianOverlapping(veterinarianId, from, to);
+        Map<LocalDate, List<BookedSlotInformation>> bookings = visitRepository.findBookedSlotsByVeterinarianInRange(veterinarianId, from, to)
+                .stream().collect(Collectors.groupingBy(BookedSlotInformation::visitDate));
+        for (LocalDate date : missing) {
+            DayKey key = new DayKey(veterinarianId, date);
+            install(key, buildDay(date, availabilities, bookings.getOrDefault(date, List.of())), seen.get(date), scheduleSeen);
+        }
+    }
+
+    /**
+     * Called once the current transaction holds the veterinarian's agenda for {@code date}. {@code seenVersion} is the
+     * version of the day's ledger row when it was locked ({@code null} if the transaction creates the row), and
+     * {@code committedVersion} the version the row will have if the transaction commits.
+     */
+    public void agendaLocked(Long veterinarianId, LocalDate date, Long seenVersion, long committedVersion) {
+        DayKey key = new DayKey(veterinarianId, date);
+        LedgerStamp stamp = new LedgerStamp(seenVersion, committedVersion);
+        pending().ledger.put(key, stamp);
+        // Whatever the day was validated against is, with this transaction's bookings, the day at the new version
+        afterCommit(() -> changed(key, slots -> {
+            if (Objects.equals(slots.getLedgerVersion(), stamp.seen())) slots.setLedgerVersion(stamp.committed());
+        }));
+    }
+
+    /**
+     * Records a new or moved booking once the current transaction commits.
+     */
+    public void visitBooked(Long veterinarianId, LocalDate date, Long visitId, LocalTime start, int durationMinutes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending().bookings.computeIfAbsent(new DayKey(veterinarianId, date), key -> new DaySlots())
+                    .book(visitId, start, durationMinutes);
+        }
+        afterCommit(() -> changed(new DayKey(veterinarianId, date), slots -> slots.book(visitId, start, durationMinutes)));
+    }
+
+    /**
+     * Frees the time of a cancelled, deleted or moved visit once the current transaction commits.
+     */
+    public void visitReleased(Long veterinarianId, LocalDate date, Long visitId) {
+        DaySlots pending = pendingDay(veterinarianId, date);
+        if (pending != null) pending.release(visitId);
+        afterCommit(() -> changed(new DayKey(veterinarianId, date), slots -> slots.release(visitId)));
+    }
+
+    /**
+     * Drops every cached day of the veterinarian once the current transaction commits.
+     */
+    public void scheduleChanged(Long veterinarianId) {
+        afterCommit(() -> {
+            scheduleGeneration.incrementAndGet();
+            days.asMap().keySet().removeIf(key -> Objects.equals(key.veterinarianId(), veterinarianId));
+        });
+    }
+
+    public void clear() {
+        scheduleGeneration.incrementAndGet();
+        days.invalidateAll();
+    }
+
+    private DaySlots day(Long veterinarianId, LocalDate date) {
+        DayKey key = new DayKey(veterinarianId, date);
+        DaySlots cached = cached(key);
+        if (cached != null) return cached;
+        long scheduleSeen = scheduleGeneration.get();
+        long seen = generations.get(stripe(key));
+        return install(key, load(veterinarianId, date), seen, scheduleSeen);
+    }
+
+    /**
+     * The cached day, unless the current transaction holds its agenda and the day is not stamped with the ledger
+     * version it locked, i.e. another instance changed the day since it was cached.
+     */
+    private DaySlots cached(DayKey key) {
+        DaySlots cached = days.getIfPresent(key);
+        LedgerStamp stamp = lockedStamp(key);
+        if (cached == null || stamp == null || Objects.equals(cached.getLedgerVersion(), stamp.seen())) return cached;
+        return null;
+    }
+
+    /**
+     * Caches a day read from the database, unless another thread cached it first (that one is returned) or a change
+     * committed since the read began. In that case the day is dropped again: it may miss the change, and the change
+     * may have been applied before the day was in the cache. A day read while holding its agenda is stamped with
+     * the locked ledger version and replaces the cached one.
+     */
+    private DaySlots install(DayKey key, DaySlots loaded, long seen, long scheduleSeen) {
+        LedgerStamp stamp = lockedStamp(key);
+        if (stamp != null) {
+            loaded.setLedgerVersion(stamp.seen());
+            days.put(key, loaded);
+        } else {
+            DaySlots raced = days.asMap().putIfAbsent(key, loaded);
+            if (raced != null) return raced;
+        }
+        if (generations.get(stripe(key)) != seen || scheduleGeneration.get() != scheduleSeen) {
+            days.asMap().remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Applies a committed change to the cached day. The generation is bumped first, so a load of the day running
+     * concurrently either sees the cached day updated here or drops itself.
+     */
+    private void changed(DayKey key, Consumer<DaySlots> change) {
+        generations.incrementAndGet(stripe(key));
+        DaySlots slots = days.getIfPresent(key);
+        if (slots != null) change.accept(slots);
+    }
+
+    private static int stripe(DayKey key) {
+        return Math.floorMod(key.hashCode(), GENERATION_STRIPES);
+    }
+
+    private DaySlots load(Long veterinarianId, LocalDate date) {
+        int dayOfWeek = date.getDayOfWeek().getValue();
+        return buildDay(date,
+                availabilityRepository.findWithExceptionsByVeterinarianAndDay(veterinarianId, dayOfWeek, date),
+                visitRepository.findBookedSlotsByVeterinarianAndDate(veterinarianId, date));
+    }
+
+    /**
+     * Builds the slots of one veterinarian and day from already loaded data. Availabilities and exceptions
+     * that do not apply to {@code date} are ignored, so callers may pass every availability of the veterinarian.
+     */
+    public static DaySlots buildDay(LocalDate date, Collection<Availability> availabilities, Collection<BookedSlotInformation> bookings) {
+        int dayOfWeek = date.getDayOfWeek().getValue();
+        DaySlots slots = new DaySlots();
+        List<Availability> applying = availabilities.stream()
+                .filter(a -> a.getDayOfWeek() == dayOfWeek)
+                .filter(a -> !date.isBefore(a.getPeriodStart()) && !date.isAfter(a.getPeriodEnd()))
+                .toList();
+        for (Availability availability : applying) {
+            slots.open(availability.getStartTime(), availability.getEndTime());
+        }
+        for (Availability availability : applying) {
+            if (availability.getExceptions() == null) continue;
+            for (AvailabilityException exception : availability.getExceptions()) {
+                if (exception.getDayOfWeek() != dayOfWeek) continue;
+                if (date.isBefore(exception.getPeriodStart()) || date.isAfter(exception.getPeriodEnd())) continue;
+                slots.close(exception.getStartTime(), exception.getEndTime());
+            }
+        }
+        for (BookedSlotInformation booking : bookings) {
+            slots.book(booking.visit_id(), booking.visitTime(), booking.duration() != null ? booking.duration() : 15);
+        }
+        return slots;
+    }
+
+    private DaySlots pendingDay(Long veterinarianId, LocalDate date) {
+        if (!TransactionSynchronizationManager.hasResource(this)) return null;
+        return pending().bookings.get(new DayKey(veterinarianId, date));
+    }
+
+    private LedgerStamp lockedStamp(DayKey key) {
+        if (!TransactionSynchronizationManager.hasResource(this)) return null;
+        return pending().ledger.get(key);
+    }
+
+    /**
+     * State of the current transaction, bound to it until it completes.
+     */
+    private Pending pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SlotAvailabilityIndex.this);
+                }
+            });
+        }
+        return pending;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -12,11 +12,9 @@ import cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianDe
 import cat.tecnocampus.veterinarymanagement.application.mappers.AvailabilityMapper;
 import cat.tecnocampus.veterinarymanagement.domain.Availability;
 import cat.tecnocampus.veterinarymanagement.domain.AvailabilityException;
-import cat.tecnocampus.veterinarymanagement.domain.Visit;
 import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
 import cat.tecnocampus.veterinarymanagement.persistence.AvailabilityRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.PersonRepository;
-import cat.tecnocampus.veterinarymanagement.persistence.VisitRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.AvailabilityExceptionRepository;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.stereotype.Service;
@@ -32,16 +30,16 @@ public class VeterinariansService {
     private final PersonRepository personRepository;
     private final AvailabilityRepository availabilityRepository;
     private final AvailabilityExceptionRepository availabilityExceptionRepository;
-    private final VisitRepository visitRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
 
     public VeterinariansService(PersonRepository personRepository,
                                 AvailabilityRepository availabilityRepository,
                                 AvailabilityExceptionRepository availabilityExceptionRepository,
-                                VisitRepository visitRepository) {
+                                SlotAvailabilityIndex slotAvailabilityIndex) {
         this.personRepository = personRepository;
         this.availabilityRepository = availabilityRepository;
         this.availabilityExceptionRepository = availabilityExceptionRepository;
-        this.visitRepository = visitRepository;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
     }
 
     public Optional<AvailabilityInformation> getAvailabilityById(Long id) {
@@ -58,6 +56,7 @@ public class VeterinariansService {
 
             Availability availability = AvailabilityMapper.inputAvailabilityToDomain(command, vet);
             var saved = availabilityRepository.save(availability);
+            slotAvailabilityIndex.scheduleChanged(vetId);
             return saved.getId();
         } catch (org.springframework.dao.InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error creating the availability");
@@ -81,6 +80,7 @@ public class VeterinariansService {
                 .orElseThrow(() -> new VeterinarianDoesNotExistException("Veterinarian with id " + vetId + " does not exist"));
         List<Availability> availabilities = availabilityRepository.findByVeterinarian(vet);
         availabilityRepository.deleteAll(availabilities);
+        slotAvailabilityIndex.scheduleChanged(vetId);
     }
 
     public AvailabilityInformation updateAvailability(Long availabilityId, AvailabilityCommand command) {
@@ -89,6 +89,7 @@ public class VeterinariansService {
                     .orElseThrow(() -> new AvailabilityDoesNotExistException("Availability with id " + availabilityId + " does not exist"));
             availability.updateAvailability(command);
             availabilityRepository.save(availability);
+            slotAvailabilityIndex.scheduleChanged(availability.getVeterinarian().getId());
             return AvailabilityMapper.toAvailabilityInformation(availability);
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error updating availability with id " + availabilityId + " does not exist", e);
@@ -101,6 +102,7 @@ public class VeterinariansService {
                     .orElseThrow(() -> new AvailabilityDoesNotExistException("Availability with id " + availabilityId + " does not exist"));
 
             availabilityRepository.delete(availability);
+            slotAvailabilityIndex.scheduleChanged(availability.getVeterinarian().getId());
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error deleting availability with id " + availabilityId, e);
         }
@@ -108,7 +110,7 @@ public class VeterinariansService {
 
     /**
      * Comprueba si un slot está disponible para un veterinario en una fecha/hora concreta.
-     * Este método centraliza la lógica anteriormente en DefaultSlotService.
+     * La respuesta sale del índice en memoria de {@link SlotAvailabilityIndex}.
      */
     public boolean isSlotAvailable(Long veterinarianId, LocalDate date, LocalTime start, LocalTime end, Long excludingVisitId) {
         java.util.Objects.requireNonNull(date, "date");
@@ -118,17 +120,7 @@ public class VeterinariansService {
         Veterinarian vet = personRepository.findVeterinarianById(veterinarianId)
                 .orElseThrow(() -> new VeterinarianDoesNotExistException("Veterinarian with id " + veterinarianId + " does not exist"));
 
-        if (!vet.isWorking(date, start, end)) return false;
-
-        List<Visit> sameDayVisits = visitRepository.findByVeterinarianAndVisitDate(vet, date);
-        boolean overlaps = sameDayVisits.stream()
-                .filter(v -> !java.util.Objects.equals(v.getId(), excludingVisitId))
-                .anyMatch(v -> timeOverlaps(v.getVisitTime(), v.getVisitTime().plusMinutes(v.getDuration()), start, end));
-        return !overlaps;
-    }
-
-    private boolean timeOverlaps(LocalTime s1, LocalTime e1, LocalTime s2, LocalTime e2) {
-        return s1.isBefore(e2) && s2.isBefore(e1);
+        return slotAvailabilityIndex.isFree(vet.getId(), date, start, end, excludingVisitId);
     }
 
     //AvailabilityException methods
@@ -140,6 +132,7 @@ public class VeterinariansService {
 
             AvailabilityException exception = ExceptionMapper.inputExceptionToDomain(command, availability);
             var saved = availabilityExceptionRepository.save(exception);
+            slotAvailabilityIndex.scheduleChanged(availability.getVeterinarian().getId());
             return saved.getId();
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error creating the exception");
@@ -170,6 +163,7 @@ public class VeterinariansService {
                     .orElseThrow(() -> new ExceptionDoesNotExistException("Exception with id " + exceptionId + " does not exist"));
             exception.updateException(command);
             availabilityExceptionRepository.save(exception);
+            slotAvailabilityIndex.scheduleChanged(exception.getAvailability().getVeterinarian().getId());
             return ExceptionMapper.toExceptionInformation(exception);
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error updating exception with id " + exceptionId, e);
@@ -181,6 +175,7 @@ public class VeterinariansService {
             AvailabilityException exception = availabilityExceptionRepository.findById(exceptionId)
                     .orElseThrow(() -> new ExceptionDoesNotExistException("Exception with id " + exceptionId + " does not exist"));
             availabilityExceptionRepository.delete(exception);
+            slotAvailabilityIndex.scheduleChanged(exception.getAvailability().getVeterinarian().getId());
         } catch (InvalidDataAccessApiUsageException e) {
             throw new IllegalArgumentException("Error deleting exception with id " + exceptionId, e);
         }
@@ -192,6 +187,7 @@ public class VeterinariansService {
                 .orElseThrow(() -> new AvailabilityDoesNotExistException("Availability with id " + availabilityId + " does not exist"));
         List<AvailabilityException> exceptions = availabilityExceptionRepository.findByAvailability(availability);
         availabilityExceptionRepository.deleteAll(exceptions);
+        slotAvailabilityIndex.scheduleChanged(availability.getVeterinarian().getId());
     }
 
     public List<VeterinarianDemandInformation> getVeterinariansByDemand(LocalDate startDate, LocalDate endDate) {
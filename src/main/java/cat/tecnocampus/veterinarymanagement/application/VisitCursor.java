@@ -0,0 +1,30 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in the visit listing, which is ordered by (visit_date, visit_time, id).
+ * It travels to clients as an opaque URL-safe string.
+ */
+public record VisitCursor(LocalDate visitDate, LocalTime visitTime, Long visitId) {
+
+    public String encode() {
+        String raw = visitDate + "|" + visitTime + "|" + visitId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static VisitCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new VisitCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
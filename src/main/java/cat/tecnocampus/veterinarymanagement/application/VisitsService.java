@@ -2,36 +2,63 @@ package cat.tecnocampus.veterinarymanagement.application;
 
 import cat.tecnocampus.veterinarymanagement.application.exceptions.*;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.MedicationPrescriptionCommand;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.RecurringVisitCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitCommand;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitTransitionCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitDiagnosisCommand;
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitSearchCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.TreatmentCommand;
 import cat.tecnocampus.veterinarymanagement.application.mappers.VisitMapper;
 import cat.tecnocampus.veterinarymanagement.application.mappers.VisitRescheduleMapper;
 import cat.tecnocampus.veterinarymanagement.application.mappers.MedicationPrescriptionMapper;
 import cat.tecnocampus.veterinarymanagement.application.mappers.TreatmentMapper;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.FreeSlotInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationConflictInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionCountInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescribedMedicationInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.RecurringVisitBookingInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.RecurringVisitOccurrenceInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitPageInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.TreatmentInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianPrescriptionCountInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitRescheduleInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitHistoryEntryInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitTransitionOutcomeInformation;
 import cat.tecnocampus.veterinarymanagement.domain.*;
+import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitInvalidStateException;
 import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitStatusInvalidException;
 import cat.tecnocampus.veterinarymanagement.persistence.*;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.Collections;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,8 +70,24 @@ public class VisitsService {
     private final VisitHistoryRepository visitHistoryRepository;
     private final MedicationsService medicationsService;
     private final VeterinariansService veterinariansService;
-    private final MedicationIncompatibilityRepository medicationIncompatibilityRepository;
+    private final IncompatibilityGraph incompatibilityGraph;
     private final TreatmentRepository treatmentRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final AvailabilityRepository availabilityRepository;
+    private final WalkInAssignmentEngine walkInAssignmentEngine;
+    private final BookingGuard bookingGuard;
+    private final PrescriptionRollupService prescriptionRollupService;
+    private final PrescriptionDailyRollupRepository prescriptionDailyRollupRepository;
+    private final MedicationPrescriptionRepository medicationPrescriptionRepository;
+
+    private static final int MAX_VISIT_PAGE_SIZE = 500;
+    private static final int RECENT_PRESCRIPTION_DAYS = 30;
+    private static final int FREE_SLOT_STEP_MINUTES = 15;
+    private static final int FREE_SLOT_MAX_RANGE_DAYS = 31;
+    private static final int MAX_FREE_SLOTS = 500;
+    private static final int MAX_IMPORT_SIZE = 1000;
+    private static final int MAX_RECURRING_OCCURRENCES = 500;
+    private static final int MAX_TRANSITIONS = 500;
 
     @Autowired
     public VisitsService(VisitRepository visitRepository,
@@ -54,8 +97,15 @@ public class VisitsService {
                          VisitHistoryRepository visitHistoryRepository,
                          VeterinariansService veterinariansService,
                          MedicationsService medicationsService,
-                         MedicationIncompatibilityRepository medicationIncompatibilityRepository,
-                         TreatmentRepository treatmentRepository) {
+                         IncompatibilityGraph incompatibilityGraph,
+                         TreatmentRepository treatmentRepository,
+                         SlotAvailabilityIndex slotAvailabilityIndex,
+                         AvailabilityRepository availabilityRepository,
+                         WalkInAssignmentEngine walkInAssignmentEngine,
+                         BookingGuard bookingGuard,
+                         PrescriptionRollupService prescriptionRollupService,
+                         PrescriptionDailyRollupRepository prescriptionDailyRollupRepository,
+                         MedicationPrescriptionRepository medicationPrescriptionRepository) {
         this.visitRepository = visitRepository;
         this.personRepository = personRepository;
         this.medicationRepository = medicationRepository;
@@ -63,8 +113,15 @@ public class VisitsService {
         this.visitHistoryRepository = visitHistoryRepository;
         this.medicationsService = medicationsService;
         this.veterinariansService = veterinariansService;
-        this.medicationIncompatibilityRepository = medicationIncompatibilityRepository;
+        this.incompatibilityGraph = incompatibilityGraph;
         this.treatmentRepository = treatmentRepository;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.availabilityRepository = availabilityRepository;
+        this.walkInAssignmentEngine = walkInAssignmentEngine;
+        this.bookingGuard = bookingGuard;
+        this.prescriptionRollupService = prescriptionRollupService;
+        this.prescriptionDailyRollupRepository = prescriptionDailyRollupRepository;
+        this.medicationPrescriptionRepository = medicationPrescriptionRepository;
     }
 
     public VisitInformation getVisitById(Long visitId) {
@@ -73,10 +130,41 @@ public class VisitsService {
         return VisitMapper.toVisitInformation(visit);
     }
 
-    public List<VisitInformation> getAllVisits() {
-        return ((List<Visit>) visitRepository.findAll()).stream()
-                .map(VisitMapper::toVisitInformation)
-                .toList();
+    /**
+     * One page of visits matching the filters, in (visit_date, visit_time, id) order. The page starts right after
+     * {@code cursor} (from the beginning when null) and the returned cursor points to the next page, if any.
+     */
+    public VisitPageInformation searchVisits(VisitSearchCommand filter, String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_VISIT_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_VISIT_PAGE_SIZE);
+        }
+        VisitCursor after = cursor != null ? VisitCursor.decode(cursor) : null;
+
+        // One extra row tells whether there is a next page without a count query
+        List<VisitScheduleEntryInformation> rows = visitRepository.searchVisits(filter,
+                after != null ? after.visitDate() : null,
+                after != null ? after.visitTime() : null,
+                after != null ? after.visitId() : null,
+                limit + 1);
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            VisitScheduleEntryInformation last = rows.get(limit - 1);
+            nextCursor = new VisitCursor(last.visitDate(), last.visitTime(), last.visit_id()).encode();
+        }
+        return new VisitPageInformation(rows.stream().map(VisitMapper::toVisitInformation).toList(), nextCursor);
+    }
+
+    /**
+     * Hands every visit matching the filters to {@code sink}, in listing order, as rows are read from the
+     * database cursor. Nothing is accumulated, so memory use does not depend on the number of visits.
+     */
+    @Transactional(readOnly = true)
+    public void streamVisits(VisitSearchCommand filter, Consumer<VisitInformation> sink) {
+        try (Stream<VisitScheduleEntryInformation> rows = visitRepository.streamVisits(filter)) {
+            rows.map(VisitMapper::toVisitInformation).forEach(sink);
+        }
     }
 
     @Transactional
@@ -93,21 +181,114 @@ public class VisitsService {
         LocalTime time = LocalTime.parse(command.visit_time());
         int duration = command.duration() != null ? command.duration() : 15;
 
-        // Check availability and overlaps using domain logic
-        List<Visit> visitList = visitRepository.findByVeterinarianAndVisitDate(vet, date);
-        vet.validateAvailability(date, time, duration, visitList);
+        // Check availability and overlaps against the in-memory slot index, holding the vet's agenda for the day
+        bookingGuard.lockAgenda(vet, date);
+        slotAvailabilityIndex.validateSlot(vet.getId(), date, time, duration, null);
 
         Visit visit = new Visit(pet, petOwner, vet, date, time, command.reasonForVisit(), command.price_per_fifteen(), duration);
         visitRepository.save(visit);
+        slotAvailabilityIndex.visitBooked(vet.getId(), date, visit.getId(), time, duration);
         return visit.getId();
     }
 
+    /**
+     * Creates all the visits or none of them. Each one is checked like in {@link #createVisit}, against the
+     * agendas and against the visits imported before it. Veterinarians, pets and owners are loaded once and the
+     * visits are inserted in JDBC batches when the transaction commits.
+     */
+    @Transactional
+    public List<Long> importVisits(List<VisitCommand> commands) {
+        if (commands == null || commands.isEmpty() || commands.size() > MAX_IMPORT_SIZE) {
+            throw new IllegalArgumentException("An import must have between 1 and " + MAX_IMPORT_SIZE + " visits");
+        }
+        Map<Long, Veterinarian> vets = new HashMap<>();
+        Map<Long, Pet> pets = new HashMap<>();
+        Map<Long, PetOwner> petOwners = new HashMap<>();
+        for (VisitCommand command : commands) {
+            vets.computeIfAbsent(command.veterinarian_id(), id -> personRepository.findVeterinarianById(id)
+                    .orElseThrow(() -> new VeterinarianDoesNotExistException("Veterinarian with id " + id + " does not exist")));
+            pets.computeIfAbsent(command.pet_id(), id -> petRepository.findById(id)
+                    .orElseThrow(() -> new PetDoesNotExistException("Pet with id " + id + " does not exist")));
+            petOwners.computeIfAbsent(command.pet_owner_id(), id -> personRepository.findPetOwnerById(id)
+                    .orElseThrow(() -> new PetDoesNotExistException("Pet owner with id " + id + " does not exist")));
+        }
+
+        // Every agenda is locked at once (stripes in index order, so two imports cannot deadlock) before the
+        // first insert is queued
+        Map<Veterinarian, Set<LocalDate>> agendas = commands.stream()
+                .collect(Collectors.groupingBy(command -> vets.get(command.veterinarian_id()),
+                        Collectors.mapping(command -> LocalDate.parse(command.visit_date()), Collectors.toSet())));
+        bookingGuard.lockAgendas(agendas);
+        agendas.forEach((vet, days) -> slotAvailabilityIndex.preload(vet.getId(), days));
+
+        List<Long> ids = new ArrayList<>(commands.size());
+        for (VisitCommand command : commands) {
+            Veterinarian vet = vets.get(command.veterinarian_id());
+            LocalDate date = LocalDate.parse(command.visit_date());
+            LocalTime time = LocalTime.parse(command.visit_time());
+            int duration = command.duration() != null ? command.duration() : 15;
+            slotAvailabilityIndex.validateSlot(vet.getId(), date, time, duration, null);
+
+            Visit visit = new Visit(pets.get(command.pet_id()), petOwners.get(command.pet_owner_id()), vet, date, time,
+                    command.reasonForVisit(), command.price_per_fifteen(), duration);
+            // Sequence ids are assigned here without an insert, so the visit is booked before anything is written
+            visitRepository.save(visit);
+            slotAvailabilityIndex.visitBooked(vet.getId(), date, visit.getId(), time, duration);
+            ids.add(visit.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Books the visit on every occurrence of the recurrence, in one transaction. The agendas of all the days are
+     * locked and loaded up front (one query for the availabilities and one for the visits of the whole window);
+     * occurrences whose slot is taken or outside the veterinarian's availability are reported as conflicts and
+     * the others are booked.
+     */
+    @Transactional
+    public RecurringVisitBookingInformation bookRecurringVisits(RecurringVisitCommand command) {
+        RecurrenceRule rule = RecurrenceRule.parse(command.recurrence());
+        List<LocalDate> dates = rule.occurrences(LocalDate.parse(command.visit_date()), MAX_RECURRING_OCCURRENCES);
+        if (dates.isEmpty()) throw new IllegalArgumentException("The recurrence has no occurrences");
+        Veterinarian vet = personRepository.findVeterinarianById(command.veterinarian_id())
+                .orElseThrow(() -> new VeterinarianDoesNotExistException("Veterinarian with id " + command.veterinarian_id() + " does not exist"));
+        Pet pet = petRepository.findById(command.pet_id())
+                .orElseThrow(() -> new PetDoesNotExistException("Pet with id " + command.pet_id() + " does not exist"));
+        PetOwner petOwner = personRepository.findPetOwnerById(command.pet_owner_id())
+                .orElseThrow(() -> new PetDoesNotExistException("Pet owner with id " + command.pet_owner_id() + " does not exist"));
+        LocalTime time = LocalTime.parse(command.visit_time());
+        int duration = command.duration() != null ? command.duration() : 15;
+
+        bookingGuard.lockAgendas(vet, dates);
+        slotAvailabilityIndex.preload(vet.getId(), dates);
+
+        List<RecurringVisitOccurrenceInformation> occurrences = new ArrayList<>(dates.size());
+        int booked = 0;
+        for (LocalDate date : dates) {
+            try {
+                slotAvailabilityIndex.validateSlot(vet.getId(), date, time, duration, null);
+            } catch (VisitSlotUnavailableException e) {
+                occurrences.add(new RecurringVisitOccurrenceInformation(date, null, e.getMessage()));
+                continue;
+            }
+            Visit visit = new Visit(pet, petOwner, vet, date, time, command.reasonForVisit(), command.price_per_fifteen(), duration);
+            visitRepository.save(visit);
+            slotAvailabilityIndex.visitBooked(vet.getId(), date, visit.getId(), time, duration);
+            occurrences.add(new RecurringVisitOccurrenceInformation(date, visit.getId(), null));
+            booked++;
+        }
+        return new RecurringVisitBookingInformation(booked, dates.size() - booked, occurrences);
+    }
+
     @Transactional
     public void deleteVisit(Long visitId) {
-        if (!visitRepository.existsById(visitId)) {
-            throw new VisitDoesNotExistException("Visit with id " + visitId + " does not exist");
+        Visit visit = visitRepository.findById(visitId)
+                .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
+        visit.getMedicationPrescriptions().forEach(mp -> prescriptionRollupService.prescriptionRemoved(visit, mp));
+        visitRepository.delete(visit);
+        if (visit.getVeterinarian() != null) {
+            slotAvailabilityIndex.visitReleased(visit.getVeterinarian().getId(), visit.getVisitDate(), visitId);
         }
-        visitRepository.deleteById(visitId);
     }
 
     @Transactional
@@ -120,10 +301,14 @@ public class VisitsService {
 
         Veterinarian assigned = findAvailableVeterinarianNow(duration)
                 .orElseThrow(() -> new VisitSlotUnavailableException("No veterinarian available now for walk-in"));
+        // The choice was made on a snapshot: confirm it while holding the agenda
+        bookingGuard.lockAgenda(assigned, LocalDate.now());
+        slotAvailabilityIndex.validateSlot(assigned.getId(), LocalDate.now(), LocalTime.now(), duration, null);
 
         Double pricerPerFifteen = 0.0;
         Visit visit = Visit.createWalkIn(pet, owner, assigned, pricerPerFifteen);
         var saved = visitRepository.save(visit);
+        slotAvailabilityIndex.visitBooked(assigned.getId(), saved.getVisitDate(), saved.getId(), saved.getVisitTime(), saved.getDuration());
         return saved.getId();
     }
 
@@ -162,6 +347,95 @@ public class VisitsService {
         VisitHistory history = visit.cancel();
         visitRepository.save(visit);
         visitHistoryRepository.save(history);
+        if (visit.getVeterinarian() != null) {
+            slotAvailabilityIndex.visitReleased(visit.getVeterinarian().getId(), visit.getVisitDate(), visitId);
+        }
+    }
+
+    /**
+     * Applies a batch of state transitions (START, COMPLETE, NO_SHOW, CANCEL) in one transaction: the visits are
+     * loaded with one query, the changes and the cancellation history rows are flushed in JDBC batches. Items are
+     * applied in order; one whose action is not among {@code permittedActions}, whose visit does not exist or that is
+     * not allowed in the visit's current status is reported and the rest still go through.
+     */
+    @Transactional
+    public List<VisitTransitionOutcomeInformation> applyVisitTransitions(List<VisitTransitionCommand> commands,
+                                                                          Set<String> permittedActions) {
+        if (commands.isEmpty() || commands.size() > MAX_TRANSITIONS) {
+            throw new IllegalArgumentException("A batch must have between 1 and " + MAX_TRANSITIONS + " transitions");
+        }
+        Map<Long, Visit> visits = visitRepository.findAllForTransitionByIdIn(
+                        commands.stream().map(VisitTransitionCommand::visit_id).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Visit::getId, Function.identity()));
+
+        List<VisitTransitionOutcomeInformation> outcomes = new ArrayList<>(commands.size());
+        List<VisitHistory> histories = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (VisitTransitionCommand command : commands) {
+            if (!permittedActions.contains(command.action())) {
+                outcomes.add(new VisitTransitionOutcomeInformation(command.visit_id(), command.action(), null,
+                        "Not allowed to apply " + command.action() + " to visits"));
+                continue;
+            }
+            Visit visit = visits.get(command.visit_id());
+            if (visit == null) {
+                outcomes.add(new VisitTransitionOutcomeInformation(command.visit_id(), command.action(), null,
+                        "Visit with id " + command.visit_id() + " does not exist"));
+                continue;
+            }
+            try {
+                switch (command.action()) {
+                    case "START" -> visit.start();
+                    case "COMPLETE" -> visit.complete();
+                    case "NO_SHOW" -> histories.add(visit.markAsNotShowedUp(now));
+                    case "CANCEL" -> {
+                        histories.add(visit.cancel());
+                        if (visit.getVeterinarian() != null) {
+                            slotAvailabilityIndex.visitReleased(visit.getVeterinarian().getId(), visit.getVisitDate(), visit.getId());
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("Unknown action " + command.action());
+                }
+                outcomes.add(new VisitTransitionOutcomeInformation(visit.getId(), command.action(), visit.getStatus().name(), null));
+            } catch (VisitInvalidStateException | IllegalArgumentException e) {
+                outcomes.add(new VisitTransitionOutcomeInformation(visit.getId(), command.action(), visit.getStatus().name(), e.getMessage()));
+            }
+        }
+        visitHistoryRepository.saveAll(histories);
+        return outcomes;
+    }
+
+    /**
+     * Marks as not showed up the oldest {@code limit} visits still scheduled a grace period before {@code now}, with
+     * one query to find them and JDBC batches for the changes and their history rows.
+     * <p>
+     * The changes are conditional on the visit still being scheduled, and only the visits actually changed get a
+     * history row, so a visit started or cancelled meanwhile, or marked by another instance, is left as it is.
+     *
+     * @return how many visits were marked
+     */
+    @Transactional
+    public int markOverdueVisitsAsNotShowedUp(LocalDateTime now, Duration gracePeriod, int limit) {
+        if (gracePeriod.compareTo(Visit.NO_SHOW_DELAY) < 0) {
+            throw new IllegalArgumentException("The grace period must be at least " + Visit.NO_SHOW_DELAY);
+        }
+        LocalDateTime dueBy = now.minus(gracePeriod);
+        Map<Long, BookedSlotInformation> overdue = visitRepository
+                .findScheduledDueBy(dueBy.toLocalDate(), dueBy.toLocalTime(), Limit.of(limit))
+                .stream()
+                .collect(Collectors.toMap(BookedSlotInformation::visit_id, Function.identity()));
+        List<Long> marked = visitRepository.markScheduledAsNotShowedUp(overdue.keySet());
+        List<VisitHistory> histories = new ArrayList<>(marked.size());
+        for (Long visitId : marked) {
+            BookedSlotInformation slot = overdue.get(visitId);
+            VisitHistory history = new VisitHistory(visitId, slot.visitDate(), slot.visitTime(), null, null, "NO_SHOW");
+            history.setPerformedBy("system");
+            history.setCreatedAt(now);
+            histories.add(history);
+        }
+        visitHistoryRepository.saveAll(histories);
+        return marked.size();
     }
 
     @Transactional
@@ -178,8 +452,9 @@ public class VisitsService {
         Visit visit = visitRepository.findById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
 
-        visit.markAsNotShowedUp();
+        VisitHistory history = visit.markAsNotShowedUp(LocalDateTime.now());
         visitRepository.save(visit);
+        visitHistoryRepository.save(history);
         return VisitMapper.toVisitInformation(visit);
     }
 
@@ -204,17 +479,17 @@ public class VisitsService {
 
         int duration = visit.getDuration() != null ? visit.getDuration() : 15;
 
-        // Reutilizar la lógica existente en VisitsService para validar disponibilidad
-        List<Visit> visits = visitRepository.findByVeterinarianAndVisitDate(vet, newDate);
-        List<Visit> otherVisits = visits.stream()
-                .filter(v -> !v.getId().equals(visitId))
-                .toList();
-        vet.validateAvailability(newDate, newTime, duration, otherVisits);
+        // The visit itself is ignored so it can be moved inside its own slot
+        bookingGuard.lockAgenda(vet, newDate);
+        slotAvailabilityIndex.validateSlot(vet.getId(), newDate, newTime, duration, visitId);
 
         // Update visit using domain method
+        LocalDate previousDate = visit.getVisitDate();
         VisitHistory history = visit.reschedule(newDate, newTime, duration, performedBy);
         visitRepository.save(visit);
         visitHistoryRepository.save(history);
+        slotAvailabilityIndex.visitReleased(vet.getId(), previousDate, visitId);
+        slotAvailabilityIndex.visitBooked(vet.getId(), newDate, visitId, newTime, duration);
 
         return VisitRescheduleMapper.toVisitRescheduleInformation(history);
     }
@@ -224,19 +499,13 @@ public class VisitsService {
      */
 
     public List<VisitInformation> getVisitsForVeterinarianAndRange(Long vetId, LocalDate start, LocalDate end)  {
-        var vet = personRepository.findVeterinarianById(vetId)
+        personRepository.findVeterinarianById(vetId)
                 .orElseThrow(() -> new VeterinarianDoesNotExistException("Veterinarian with id " + vetId + " does not exist"));
 
-        List<VisitInformation> result = new ArrayList<>();
-        LocalDate date = start;
-        while (!date.isAfter(end)) {
-            var visits = visitRepository.findByVeterinarianAndVisitDate(vet, date);
-            visits.stream().map(VisitMapper::toVisitInformation).forEach(result::add);
-            date = date.plusDays(1);
-        }
-        // sort by date then time
-        result.sort(Comparator.comparing(VisitInformation::visitDate).thenComparing(VisitInformation::visitTime));
-        return result;
+        // One range query over (veterinarian_id, visit_date), already sorted by date then time
+        return visitRepository.findScheduleByVeterinarianAndRange(vetId, start, end).stream()
+                .map(VisitMapper::toVisitInformation)
+                .toList();
     }
 
     public Optional<Veterinarian> findAvailableVeterinarianNow() {
@@ -244,21 +513,62 @@ public class VisitsService {
     }
 
     public Optional<Veterinarian> findAvailableVeterinarianNow(int durationMinutes) {
-        LocalDate now = LocalDate.now();
-        LocalTime time = LocalTime.now();
-        int dayOfWeek = now.getDayOfWeek().getValue();
-
-        // Optimización: filtrar primero por disponibilidad base en DB
-        List<Veterinarian> candidates = personRepository.findAvailableVeterinarians(dayOfWeek, time, time.plusMinutes(durationMinutes), now);
-        
-        return candidates.stream()
-                .filter(v -> veterinariansService.isSlotAvailable(
-                        v.getId(),
-                        now,
-                        time,
-                        time.plusMinutes(durationMinutes),
-                        null))
-                .findFirst();
+        // Candidates and their visits of the day are loaded in two queries; the policy spreads walk-ins
+        return walkInAssignmentEngine.assign(LocalDate.now(), LocalTime.now(), durationMinutes);
+    }
+
+    /**
+     * Earliest {@code limit} free slots of {@code durationMinutes} across all veterinarians between two dates,
+     * ordered by date, start time and veterinarian. Candidate starts lie on a 15-minute grid and slots in the
+     * past are skipped. Availabilities (with exceptions) and visits of the whole range are read with two
+     * queries and scanned in memory, one day at a time, stopping as soon as enough slots are found.
+     */
+    public List<FreeSlotInformation> findFreeSlots(LocalDate from, LocalDate to, int durationMinutes, int limit) {
+        if (from == null || to == null) throw new IllegalArgumentException("from and to dates must be provided");
+        if (from.isAfter(to)) throw new IllegalArgumentException("from date must be before or equal to to date");
+        if (ChronoUnit.DAYS.between(from, to) >= FREE_SLOT_MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("The search range cannot exceed " + FREE_SLOT_MAX_RANGE_DAYS + " days");
+        }
+        if (durationMinutes <= 0 || durationMinutes > DaySlots.MINUTES_PER_DAY) throw new IllegalArgumentException("Invalid duration");
+        if (limit <= 0 || limit > MAX_FREE_SLOTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_FREE_SLOTS);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (to.isBefore(now.toLocalDate())) return List.of();
+        if (from.isBefore(now.toLocalDate())) from = now.toLocalDate();
+
+        Map<Long, List<Availability>> availabilitiesByVet = availabilityRepository.findWithExceptionsOverlapping(from, to).stream()
+                .collect(Collectors.groupingBy(a -> a.getVeterinarian().getId(), TreeMap::new, Collectors.toList()));
+        Map<Long, Map<LocalDate, List<BookedSlotInformation>>> bookingsByVetAndDate = visitRepository.findBookedSlotsInRange(from, to).stream()
+                .collect(Collectors.groupingBy(BookedSlotInformation::veterinarian_id,
+                        Collectors.groupingBy(BookedSlotInformation::visitDate)));
+
+        List<FreeSlotInformation> slots = new ArrayList<>(Math.min(limit, 64));
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int firstMinute = date.equals(now.toLocalDate()) ? now.toLocalTime().toSecondOfDay() / 60 + 1 : 0;
+            firstMinute = (firstMinute + FREE_SLOT_STEP_MINUTES - 1) / FREE_SLOT_STEP_MINUTES * FREE_SLOT_STEP_MINUTES;
+
+            List<FreeSlotInformation> daySlots = new ArrayList<>();
+            for (var entry : availabilitiesByVet.entrySet()) {
+                List<BookedSlotInformation> bookings = bookingsByVetAndDate
+                        .getOrDefault(entry.getKey(), Map.of())
+                        .getOrDefault(date, List.of());
+                DaySlots vetDay = SlotAvailabilityIndex.buildDay(date, entry.getValue(), bookings);
+                for (int minute = firstMinute; minute + durationMinutes <= DaySlots.MINUTES_PER_DAY; minute += FREE_SLOT_STEP_MINUTES) {
+                    LocalTime start = LocalTime.ofSecondOfDay(minute * 60L);
+                    if (vetDay.isFree(start, durationMinutes, null)) {
+                        daySlots.add(new FreeSlotInformation(entry.getKey(), date, start, start.plusMinutes(durationMinutes)));
+                    }
+                }
+            }
+            daySlots.sort(Comparator.comparing(FreeSlotInformation::start_time).thenComparing(FreeSlotInformation::veterinarian_id));
+            for (FreeSlotInformation slot : daySlots) {
+                slots.add(slot);
+                if (slots.size() == limit) return slots;
+            }
+        }
+        return slots;
     }
 
     /**
@@ -268,7 +578,7 @@ public class VisitsService {
     @Transactional
     public Long addMedicationPrescription(Long visitId, Long medicationId, MedicationPrescriptionCommand command) {
         // Obtener la visita para deducir el petId y delegar en la versión existente
-        Visit visit = visitRepository.findById(visitId)
+        Visit visit = visitRepository.findWithPrescriptionsById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
         Long petId = visit.getPet() != null ? visit.getPet().getId() : null;
 
@@ -291,8 +601,10 @@ public class VisitsService {
                 .orElseThrow(() -> new MedicationDoesNotExistException("Medication with id " + medicationId + " does not exist"));
 
         // Check medication incompatibilities with pet's medications (including recent ones)
-        if (this.medicationIncompatibilityRepository != null && hasMedicationIncompatibility(pet, medication)) {
-            throw new MedicationIncompatibilityExistsException("Medication with id " + medicationId + " is incompatible with medications the pet is taking or has taken recently");
+        List<MedicationConflictInformation> conflicts = findMedicationConflicts(pet, medication);
+        if (!conflicts.isEmpty()) {
+            throw new MedicationIncompatibilityExistsException("Medication with id " + medicationId
+                    + " is incompatible with medications the pet is taking or has taken recently", conflicts);
         }
 
         int qty = command.quantity();
@@ -302,48 +614,40 @@ public class VisitsService {
         MedicationPrescription prescription = MedicationPrescriptionMapper.inputMedicationPrescriptionToDomain(
                 command, visit, medication);
 
-        visit.getMedicationPrescriptions().add(prescription);
-        Visit saved = visitRepository.save(visit);
-        return saved.getMedicationPrescriptions().stream()
-                .map(MedicationPrescription::getId)
-                .max(Long::compareTo)
-                .orElse(null);
+        // Pooled sequence ids are not ordered across instances, so the id is the one given to this prescription
+        MedicationPrescription saved = medicationPrescriptionRepository.saveAndFlush(prescription);
+        visit.getMedicationPrescriptions().add(saved);
+        prescriptionRollupService.prescriptionAdded(visit, saved);
+        return saved.getId();
     }
 
     /**
-     * Checks whether the provided medication is incompatible with any medication the pet is taking or has taken recently.
-     * Heuristic: consider visits in the last 30 days as "recent". An incompatibility record is considered active if
-     * its persistsUntil is null (indefinite) or not before today.
+     * Lists the medications the pet is taking or has taken recently that are incompatible with the provided one.
+     * Heuristic: consider visits in the last {@value #RECENT_PRESCRIPTION_DAYS} days as "recent". An incompatibility
+     * record is considered active if its persistsUntil is null (indefinite) or not before today.
+     * The recent medications are read with one query and checked against the {@link IncompatibilityGraph}.
      *
      * @param pet the pet to check
      * @param medication the medication to check
-     * @return true if the medication is incompatible with any medication the pet is taking or has taken recently
+     * @return the conflicting medications, empty if the medication can be prescribed
      */
-    private boolean hasMedicationIncompatibility(Pet pet, Medication medication) {
-        if (pet == null || pet.getVisits() == null) return false;
-        LocalDate cutoff = LocalDate.now().minusDays(30);
-        for (Visit v : pet.getVisits()) {
-            if (v.getVisitDate() == null) continue;
-            if (v.getVisitDate().isBefore(cutoff)) continue; // only recent visits
-            if (v.getMedicationPrescriptions() == null) continue;
-            for (MedicationPrescription mp : v.getMedicationPrescriptions()) {
-                Medication other = mp.getMedication();
-                if (other == null || other.getId() == null) continue;
-                var opt = medicationIncompatibilityRepository.findByMedications(medication, other);
-                if (opt.isPresent()) {
-                    var mi = opt.get();
-                    LocalDate persists = mi.getPersistsUntil();
-                    if (persists == null || !persists.isBefore(LocalDate.now())) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+    private List<MedicationConflictInformation> findMedicationConflicts(Pet pet, Medication medication) {
+        LocalDate today = LocalDate.now();
+        Map<Long, PrescribedMedicationInformation> recent = visitRepository
+                .findMedicationsPrescribedToPetSince(pet.getId(), today.minusDays(RECENT_PRESCRIPTION_DAYS)).stream()
+                .collect(Collectors.toMap(PrescribedMedicationInformation::medication_id, Function.identity()));
+        return incompatibilityGraph.conflicts(medication.getId(), recent.keySet(), today).stream()
+                .map(mi -> {
+                    Long otherId = medication.getId().equals(mi.medication_a_id()) ? mi.medication_b_id() : mi.medication_a_id();
+                    PrescribedMedicationInformation other = recent.get(otherId);
+                    return new MedicationConflictInformation(otherId, other.medication_name(),
+                            other.last_prescribed_on(), mi.persists_until(), mi.description());
+                })
+                .toList();
     }
 
     public List<MedicationPrescriptionInformation> listMedicationPrescriptions(Long visitId) {
-        Visit visit = visitRepository.findById(visitId)
+        Visit visit = visitRepository.findWithPrescriptionsById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
         return visit.getMedicationPrescriptions().stream()
                 .map(MedicationPrescriptionMapper::toMedicationPrescriptionInformation)
@@ -351,7 +655,7 @@ public class VisitsService {
     }
 
     public MedicationPrescriptionInformation getMedicationPrescriptionById(Long visitId, Long prescriptionId) {
-        Visit visit = visitRepository.findById(visitId)
+        Visit visit = visitRepository.findWithPrescriptionsById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
         MedicationPrescription mp = visit.getMedicationPrescriptions().stream()
                 .filter(p -> p.getId().equals(prescriptionId))
@@ -363,42 +667,19 @@ public class VisitsService {
 
     /**
      * UC2.6: List medication ordered by prescription in a given period.
-     * Implementation note: do not create new classes. We delegate aggregation to the DB via VisitRepository.
-     * Returns a list of maps with keys: medicationId (Long), medicationName (String), prescriptionCount (Long)
+     * Implementation note: the counts are added up from the daily rollup, so the cost depends on the days in the
+     * period and not on the prescription history.
      */
-    public List<Map<String, Object>> listMedicationPrescriptionsByPeriod(LocalDate from, LocalDate to) {
+    public List<MedicationPrescriptionCountInformation> listMedicationPrescriptionsByPeriod(LocalDate from, LocalDate to) {
         if (from == null || to == null) throw new IllegalArgumentException("from and to dates must be provided");
         if (from.isAfter(to)) throw new IllegalArgumentException("from date must be before or equal to to date");
 
-        List<Object[]> rows = visitRepository.findMedicationPrescriptionCounts(from, to);
-
-        return rows.stream().map(r -> {
-            // r[0] = m.id, r[1] = m.name, r[2] = COUNT(mp)
-            Object idObj = r[0];
-            Object nameObj = r[1];
-            Object countObj = r[2];
-
-            Long medicationId = null;
-            if (idObj instanceof Number) medicationId = ((Number) idObj).longValue();
-            else if (idObj != null) medicationId = Long.parseLong(idObj.toString());
-
-            String medicationName = nameObj != null ? nameObj.toString() : null;
-
-            long prescriptionCount = 0;
-            if (countObj instanceof Number) prescriptionCount = ((Number) countObj).longValue();
-            else if (countObj != null) prescriptionCount = Long.parseLong(countObj.toString());
-
-            Map<String, Object> map = new HashMap<>();
-            map.put("medicationId", medicationId);
-            map.put("medicationName", medicationName);
-            map.put("prescriptionCount", prescriptionCount);
-            return map;
-        }).collect(Collectors.toList());
+        return prescriptionDailyRollupRepository.findMedicationPrescriptionCounts(from, to);
     }
 
     @Transactional
     public void updateMedicationPrescription(Long visitId, Long prescriptionId, MedicationPrescriptionCommand command) {
-        Visit visit = visitRepository.findById(visitId)
+        Visit visit = visitRepository.findWithPrescriptionsById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
         MedicationPrescription mp = visit.getMedicationPrescriptions().stream()
                 .filter(p -> p.getId().equals(prescriptionId))
@@ -423,14 +704,16 @@ public class VisitsService {
 
     @Transactional
     public void deleteMedicationPrescription(Long visitId, Long prescriptionId) {
-        Visit visit = visitRepository.findById(visitId)
+        Visit visit = visitRepository.findWithPrescriptionsById(visitId)
                 .orElseThrow(() -> new VisitDoesNotExistException("Visit with id " + visitId + " does not exist"));
-        boolean removed = visit.getMedicationPrescriptions().removeIf(p -> p.getId().equals(prescriptionId));
-        if (!removed) {
-            throw new MedicationPrescriptionDoesNotExistException(
-                    "Medication Prescription with id " + prescriptionId + " does not exist for this visit");
-        }
+        MedicationPrescription mp = visit.getMedicationPrescriptions().stream()
+                .filter(p -> p.getId().equals(prescriptionId))
+                .findFirst()
+                .orElseThrow(() -> new MedicationPrescriptionDoesNotExistException(
+                        "Medication Prescription with id " + prescriptionId + " does not exist for this visit"));
+        visit.getMedicationPrescriptions().remove(mp);
         visitRepository.save(visit);
+        prescriptionRollupService.prescriptionRemoved(visit, mp);
     }
 
     /**
@@ -438,23 +721,30 @@ public class VisitsService {
      */
 
     @Transactional
+    @CacheEvict(cacheNames = "treatmentList", allEntries = true)
     public Long createTreatment(TreatmentCommand command) {
         Treatment treatment = TreatmentMapper.inputTreatmentToDomain(command);
         treatmentRepository.save(treatment);
         return treatment.getId();
     }
 
+    @Cacheable("treatmentList")
     public List<TreatmentInformation> getTreatments() {
         return treatmentRepository.findAll().stream()
                 .map(TreatmentMapper::toTreatmentInformation)
                 .toList();
     }
 
+    @Cacheable(cacheNames = "treatments", unless = "#result == null")
     public Optional<TreatmentInformation> getTreatmentById(Long treatmentId) {
         return treatmentRepository.findTreatmentInformationById(treatmentId);
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "treatments", key = "#treatmentId"),
+            @CacheEvict(cacheNames = "treatmentList", allEntries = true)
+    })
     public TreatmentInformation updateTreatment(Long treatmentId, TreatmentCommand command) {
         Treatment treatment = treatmentRepository.findById(treatmentId)
                 .orElseThrow(() -> new TreatmentDoesNotExistException("Treatment with id " + treatmentId + " does not exist"));
@@ -463,6 +753,10 @@ public class VisitsService {
         return TreatmentMapper.toTreatmentInformation(treatment);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "treatments", key = "#treatmentId"),
+            @CacheEvict(cacheNames = "treatmentList", allEntries = true)
+    })
     public void deleteTreatment(Long treatmentId) {
         treatmentRepository.deleteById(treatmentId);
     }
@@ -517,40 +811,13 @@ public class VisitsService {
 
     /**
      * UC2.7: List veterinarians ordered by prescription count of a given medication in a period.
-     * Returns a list of maps with keys: veterinarianId (Long), veterinarianName (String), veterinarianLastName (String), prescriptionCount (Long)
      */
-    public List<Map<String, Object>> listVeterinariansByMedicationPrescriptions(Long medicationId, LocalDate from, LocalDate to) {
+    public List<VeterinarianPrescriptionCountInformation> listVeterinariansByMedicationPrescriptions(Long medicationId, LocalDate from, LocalDate to) {
         if (medicationId == null) throw new IllegalArgumentException("medicationId must be provided");
         if (from == null || to == null) throw new IllegalArgumentException("from and to dates must be provided");
         if (from.isAfter(to)) throw new IllegalArgumentException("from date must be before or equal to to date");
 
-        List<Object[]> rows = visitRepository.findVeterinarianPrescriptionCounts(medicationId, from, to);
-
-        return rows.stream().map(r -> {
-            // r[0] = vet.id, r[1] = vet.name, r[2] = vet.lastName, r[3] = COUNT(mp)
-            Object idObj = r[0];
-            Object nameObj = r[1];
-            Object lastNameObj = r[2];
-            Object countObj = r[3];
-
-            Long vetId = null;
-            if (idObj instanceof Number) vetId = ((Number) idObj).longValue();
-            else if (idObj != null) vetId = Long.parseLong(idObj.toString());
-
-            String vetName = nameObj != null ? nameObj.toString() : null;
-            String vetLastName = lastNameObj != null ? lastNameObj.toString() : null;
-
-            long prescriptionCount = 0;
-            if (countObj instanceof Number) prescriptionCount = ((Number) countObj).longValue();
-            else if (countObj != null) prescriptionCount = Long.parseLong(countObj.toString());
-
-            Map<String, Object> map = new HashMap<>();
-            map.put("veterinarianId", vetId);
-            map.put("veterinarianName", vetName);
-            map.put("veterinarianLastName", vetLastName);
-            map.put("prescriptionCount", prescriptionCount);
-            return map;
-        }).collect(Collectors.toList());
+        return prescriptionDailyRollupRepository.findVeterinarianPrescriptionCounts(medicationId, from, to);
     }
 
 }
@@ -0,0 +1,106 @@
+package cat.tecnocampus.veterinarymanagement.application;
+
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation;
+import cat.tecnocampus.veterinarymanagement.domain.Availability;
+import cat.tecnocampus.veterinarymanagement.domain.DaySlots;
+import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
+import cat.tecnocampus.veterinarymanagement.persistence.AvailabilityRepository;
+import cat.tecnocampus.veterinarymanagement.persistence.VisitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the veterinarian for a walk-in visit.
+ * <p>
+ * The availabilities (with exceptions and veterinarian) and the visits of the day are read with one query each,
+ * whatever the number of veterinarians on shift, and the free candidates are evaluated in memory. Among them
+ * the configured {@link Policy} picks one ({@code application.visits.walk-in.policy}, LEAST_LOADED by default).
+ */
+@Component
+public class WalkInAssignmentEngine {
+
+    public enum Policy {
+        /** Lowest veterinarian id that is free. */
+        FIRST_FIT,
+        /** Free veterinarian with the fewest booked minutes that day, lowest id on ties. */
+        LEAST_LOADED,
+        /** Next free veterinarian (by id) after the one assigned last, wrapping around. */
+        ROUND_ROBIN
+    }
+
+    public record Candidate(Veterinarian veterinarian, int bookedMinutes) {}
+
+    private final AvailabilityRepository availabilityRepository;
+    private final VisitRepository visitRepository;
+    private final Policy defaultPolicy;
+    private final AtomicReference<Long> lastAssigned = new AtomicReference<>();
+
+    public WalkInAssignmentEngine(AvailabilityRepository availabilityRepository,
+                                  VisitRepository visitRepository,
+                                  @Value("${application.visits.walk-in.policy:LEAST_LOADED}") Policy defaultPolicy) {
+        this.availabilityRepository = availabilityRepository;
+        this.visitRepository = visitRepository;
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public Optional<Veterinarian> assign(LocalDate date, LocalTime start, int durationMinutes) {
+        return assign(date, start, durationMinutes, defaultPolicy);
+    }
+
+    public Optional<Veterinarian> assign(LocalDate date, LocalTime start, int durationMinutes, Policy policy) {
+        List<Candidate> candidates = freeCandidates(date, start, durationMinutes);
+        if (candidates.isEmpty()) return Optional.empty();
+        Candidate chosen = switch (policy) {
+            case FIRST_FIT -> candidates.get(0);
+            case LEAST_LOADED -> candidates.stream().min(Comparator.comparingInt(Candidate::bookedMinutes)).orElseThrow();
+            case ROUND_ROBIN -> {
+                // Chosen and recorded in one atomic step, so concurrent walk-ins never get the same turn
+                Long assigned = lastAssigned.updateAndGet(last -> nextInTurn(candidates, last).veterinarian().getId());
+                yield candidates.stream().filter(c -> c.veterinarian().getId().equals(assigned)).findFirst().orElseThrow();
+            }
+        };
+        if (policy != Policy.ROUND_ROBIN) lastAssigned.set(chosen.veterinarian().getId());
+        return Optional.of(chosen.veterinarian());
+    }
+
+    private static Candidate nextInTurn(List<Candidate> candidates, Long last) {
+        return candidates.stream()
+                .filter(c -> last == null || c.veterinarian().getId() > last)
+                .findFirst()
+                .orElse(candidates.get(0));
+    }
+
+    /**
+     * Veterinarians free for the whole slot, ordered by id.
+     */
+    public List<Candidate> freeCandidates(LocalDate date, LocalTime start, int durationMinutes) {
+        Map<Veterinarian, List<Availability>> availabilitiesByVet = availabilityRepository.findWithExceptionsOverlapping(date, date).stream()
+                .filter(a -> a.getDayOfWeek() == date.getDayOfWeek().getValue())
+                .collect(Collectors.groupingBy(Availability::getVeterinarian,
+                        () -> new TreeMap<>(Comparator.comparing(Veterinarian::getId)), Collectors.toList()));
+        if (availabilitiesByVet.isEmpty()) return List.of();
+
+        Map<Long, List<BookedSlotInformation>> bookingsByVet = visitRepository.findBookedSlotsInRange(date, date).stream()
+                .collect(Collectors.groupingBy(BookedSlotInformation::veterinarian_id));
+
+        return availabilitiesByVet.entrySet().stream()
+                .map(entry -> {
+                    Veterinarian vet = entry.getKey();
+                    DaySlots slots = SlotAvailabilityIndex.buildDay(date, entry.getValue(), bookingsByVet.getOrDefault(vet.getId(), List.of()));
+                    return slots.isFree(start, durationMinutes, null) ? new Candidate(vet, slots.bookedMinutes()) : null;
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,7 @@
+package cat.tecnocampus.veterinarymanagement.application.exceptions;
+
+public class BookingConflictException extends RuntimeException {
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
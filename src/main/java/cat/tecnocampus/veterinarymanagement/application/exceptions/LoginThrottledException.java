@@ -0,0 +1,7 @@
+package cat.tecnocampus.veterinarymanagement.application.exceptions;
+
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
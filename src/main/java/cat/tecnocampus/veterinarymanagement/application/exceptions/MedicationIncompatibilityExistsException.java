@@ -1,6 +1,18 @@
 package cat.tecnocampus.veterinarymanagement.application.exceptions;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationConflictInformation;
+
+import java.util.List;
+
 public class MedicationIncompatibilityExistsException extends RuntimeException {
-    public MedicationIncompatibilityExistsException(String message) { super(message); }
-}
+    private final List<MedicationConflictInformation> conflicts;
 
+    public MedicationIncompatibilityExistsException(String message) { this(message, List.of()); }
+
+    public MedicationIncompatibilityExistsException(String message, List<MedicationConflictInformation> conflicts) {
+        super(message);
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    public List<MedicationConflictInformation> getConflicts() { return conflicts; }
+}
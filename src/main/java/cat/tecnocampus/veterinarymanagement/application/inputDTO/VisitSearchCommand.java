@@ -0,0 +1,17 @@
+package cat.tecnocampus.veterinarymanagement.application.inputDTO;
+
+import cat.tecnocampus.veterinarymanagement.domain.VisitStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filters of the visit listing; null fields do not filter.
+ */
+public record VisitSearchCommand(
+        Long veterinarian_id,
+        Long pet_id,
+        Long pet_owner_id,
+        VisitStatus status,
+        LocalDate from,
+        LocalDate to
+) {}
@@ -0,0 +1,23 @@
+package cat.tecnocampus.veterinarymanagement.application.inputDTO;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.Set;
+
+/**
+ * One item of a batch of visit state transitions.
+ *
+ * @param visit_id The visit to move (required)
+ * @param action START, COMPLETE, NO_SHOW or CANCEL (required)
+ */
+public record VisitTransitionCommand(
+        @NotNull(message = "The field 'visit_id' cannot be null")
+        Long visit_id,
+
+        @NotNull(message = "The field 'action' cannot be null")
+        @Pattern(regexp = "^(START|COMPLETE|NO_SHOW|CANCEL)$", message = "Action must be one of: START, COMPLETE, NO_SHOW, CANCEL")
+        String action
+) {
+    public static final Set<String> ACTIONS = Set.of("START", "COMPLETE", "NO_SHOW", "CANCEL");
+}
@@ -1,6 +1,8 @@
 package cat.tecnocampus.veterinarymanagement.application.mappers;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.TreatmentInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
 import cat.tecnocampus.veterinarymanagement.domain.Visit;
 
 public class VisitMapper {
@@ -19,4 +21,22 @@ public class VisitMapper {
                 TreatmentMapper.toTreatmentInformation(visit.getTreatment())
         );
     }
+
+    public static VisitInformation toVisitInformation(VisitScheduleEntryInformation entry) {
+        return new VisitInformation(
+                entry.visit_id(),
+                entry.visitDate() != null ? entry.visitDate().toString() : null,
+                entry.visitTime() != null ? entry.visitTime().toString() : null,
+                entry.duration(),
+                entry.reasonForVisit(),
+                entry.pricerPerFifteen(),
+                entry.status(),
+                entry.veterinarian_id(),
+                entry.pet_id(),
+                entry.pet_owner_id(),
+                entry.treatment_id() != null
+                        ? new TreatmentInformation(entry.treatment_id(), entry.treatment_name(), entry.treatment_description(), entry.treatment_cost())
+                        : null
+        );
+    }
 }
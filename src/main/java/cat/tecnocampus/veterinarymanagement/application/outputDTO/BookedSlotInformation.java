@@ -0,0 +1,15 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Time taken by a non-cancelled visit in a veterinarian's agenda, as read by the slot index.
+ */
+public record BookedSlotInformation(
+        Long visit_id,
+        Long veterinarian_id,
+        LocalDate visitDate,
+        LocalTime visitTime,
+        Integer duration
+) {}
@@ -0,0 +1,11 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record FreeSlotInformation(
+        Long veterinarian_id,
+        LocalDate date,
+        LocalTime start_time,
+        LocalTime end_time
+) {}
@@ -0,0 +1,9 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+/**
+ * Number of medication incompatibilities and their highest id, which change whenever one is added or removed.
+ */
+public record IncompatibilityFingerprintInformation(
+        Long count,
+        Long max_id
+) {}
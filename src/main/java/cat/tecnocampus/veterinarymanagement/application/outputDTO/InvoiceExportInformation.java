@@ -0,0 +1,14 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import cat.tecnocampus.veterinarymanagement.domain.InvoiceStatus;
+
+import java.time.LocalDate;
+
+public record InvoiceExportInformation(
+        Long invoice_id,
+        LocalDate invoice_date,
+        InvoiceStatus status,
+        Double total_amount,
+        Long visit_id,
+        Long pet_owner_id
+) {}
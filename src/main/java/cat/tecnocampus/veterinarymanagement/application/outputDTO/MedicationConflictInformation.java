@@ -0,0 +1,14 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+
+/**
+ * A medication the pet received recently that is incompatible with the one being prescribed.
+ */
+public record MedicationConflictInformation(
+        Long medication_id,
+        String medication_name,
+        LocalDate last_prescribed_on,
+        LocalDate persists_until,
+        String description
+) {}
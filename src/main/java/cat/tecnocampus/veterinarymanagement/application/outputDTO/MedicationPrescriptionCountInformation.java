@@ -0,0 +1,7 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+public record MedicationPrescriptionCountInformation(
+        Long medicationId,
+        String medicationName,
+        long prescriptionCount
+) {}
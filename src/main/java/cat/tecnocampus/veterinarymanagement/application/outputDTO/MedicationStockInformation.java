@@ -0,0 +1,11 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDateTime;
+
+public record MedicationStockInformation(
+        Long medication_id,
+        Integer quantity,
+        Integer reorder_threshold,
+        boolean low_stock,
+        LocalDateTime reconciled_at
+) {}
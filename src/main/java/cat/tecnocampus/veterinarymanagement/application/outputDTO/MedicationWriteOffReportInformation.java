@@ -0,0 +1,12 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+/**
+ * Expired stock written off for one medication in a period.
+ */
+public record MedicationWriteOffReportInformation(
+        Long medication_id,
+        String medication_name,
+        Long batches,
+        Long quantity,
+        Double total_cost
+) {}
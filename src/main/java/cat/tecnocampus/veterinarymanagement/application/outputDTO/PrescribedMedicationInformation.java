@@ -0,0 +1,12 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+
+/**
+ * A medication prescribed to a pet and the date of the latest visit it was prescribed in.
+ */
+public record PrescribedMedicationInformation(
+        Long medication_id,
+        String medication_name,
+        LocalDate last_prescribed_on
+) {}
@@ -0,0 +1,16 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+
+public record PrescriptionExportInformation(
+        Long prescription_id,
+        Long visit_id,
+        LocalDate visit_date,
+        Long veterinarian_id,
+        Long pet_id,
+        Long medication_id,
+        String medication_name,
+        Integer quantity,
+        String dosage_instructions,
+        Integer duration_in_days
+) {}
@@ -0,0 +1,9 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.util.List;
+
+public record RecurringVisitBookingInformation(
+        int booked,
+        int conflicts,
+        List<RecurringVisitOccurrenceInformation> occurrences
+) {}
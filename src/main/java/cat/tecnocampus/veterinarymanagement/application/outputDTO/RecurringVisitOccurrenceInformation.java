@@ -0,0 +1,12 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.time.LocalDate;
+
+/**
+ * One occurrence of a recurring booking: the visit booked for it, or why it could not be booked.
+ */
+public record RecurringVisitOccurrenceInformation(
+        LocalDate visit_date,
+        Long visit_id,
+        String conflict
+) {}
@@ -0,0 +1,9 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+/**
+ * Units on hand of a medication, summed over its batches.
+ */
+public record StockQuantityInformation(
+        Long medication_id,
+        Long quantity
+) {}
@@ -0,0 +1,8 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+public record VeterinarianPrescriptionCountInformation(
+        Long veterinarianId,
+        String veterinarianName,
+        String veterinarianLastName,
+        long prescriptionCount
+) {}
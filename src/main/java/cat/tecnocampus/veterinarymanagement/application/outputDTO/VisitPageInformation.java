@@ -0,0 +1,11 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import java.util.List;
+
+/**
+ * One page of the visit listing. {@code next_cursor} is null on the last page.
+ */
+public record VisitPageInformation(
+        List<VisitInformation> visits,
+        String next_cursor
+) {}
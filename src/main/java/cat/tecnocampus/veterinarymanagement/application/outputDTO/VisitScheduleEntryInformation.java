@@ -0,0 +1,27 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+import cat.tecnocampus.veterinarymanagement.domain.VisitStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Flat projection of a visit used by the schedule read path. It is built directly by the
+ * repository (constructor expression) so no Visit entity nor its prescriptions are loaded.
+ */
+public record VisitScheduleEntryInformation(
+        Long visit_id,
+        LocalDate visitDate,
+        LocalTime visitTime,
+        Integer duration,
+        String reasonForVisit,
+        Double pricerPerFifteen,
+        VisitStatus status,
+        Long veterinarian_id,
+        Long pet_id,
+        Long pet_owner_id,
+        Long treatment_id,
+        String treatment_name,
+        String treatment_description,
+        Double treatment_cost
+) {}
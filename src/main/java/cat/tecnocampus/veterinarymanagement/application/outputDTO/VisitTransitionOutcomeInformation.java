@@ -0,0 +1,12 @@
+package cat.tecnocampus.veterinarymanagement.application.outputDTO;
+
+/**
+ * Outcome of one item of a batch of visit state transitions: the status the visit ended in, or why the
+ * transition was refused (the visit is then left as it was).
+ */
+public record VisitTransitionOutcomeInformation(
+        Long visit_id,
+        String action,
+        String status,
+        String error
+) {}
@@ -9,7 +9,9 @@ import java.time.LocalTime;
 import java.util.List;
 
 @Entity
-@Table(name = "availability")
+@Table(name = "availability", indexes = {
+        @Index(name = "idx_availability_veterinarian_day", columnList = "veterinarian_id, day_of_week")
+})
 @NoArgsConstructor
 public class Availability {
     @Id
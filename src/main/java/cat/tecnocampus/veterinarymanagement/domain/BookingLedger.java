@@ -0,0 +1,42 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * One row per veterinarian and day that has ever been booked. Every booking transaction of that day bumps
+ * its version, so two transactions booking the same agenda (even on different application instances) cannot
+ * both commit, and the unique key stops two of them from creating the row at the same time.
+ */
+@Entity
+@Table(name = "booking_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_ledger_veterinarian_date", columnNames = {"veterinarian_id", "booking_date"}))
+@NoArgsConstructor
+public class BookingLedger {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_ledger_seq")
+    @SequenceGenerator(name = "booking_ledger_seq", sequenceName = "booking_ledger_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "veterinarian_id", nullable = false)
+    private Veterinarian veterinarian;
+
+    @Column(name = "booking_date", nullable = false)
+    private LocalDate bookingDate;
+
+    @Version
+    private Long version;
+
+    public BookingLedger(Veterinarian veterinarian, LocalDate bookingDate) {
+        this.veterinarian = veterinarian;
+        this.bookingDate = bookingDate;
+    }
+
+    public Long getId() { return id; }
+    public Veterinarian getVeterinarian() { return veterinarian; }
+    public LocalDate getBookingDate() { return bookingDate; }
+    public Long getVersion() { return version; }
+}
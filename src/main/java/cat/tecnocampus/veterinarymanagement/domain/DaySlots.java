@@ -0,0 +1,168 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Minute-resolution occupancy of one veterinarian on one day.
+ * <p>
+ * Two bitmaps of 1440 bits are kept: the minutes the veterinarian works (availabilities minus their
+ * exceptions) and the minutes already booked by non-cancelled visits. Bookings are also kept by visit id
+ * so a visit can be released or ignored (reschedule) without touching the other ones.
+ * Instances are mutated concurrently by the booking paths, so every public method is synchronized.
+ * <p>
+ * The version of the day's booking ledger row the bookings are known to be up to date with, if any, is kept along.
+ */
+public class DaySlots {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final long[] open = new long[WORDS];
+    private final long[] booked = new long[WORDS];
+    private final Map<Long, int[]> bookings = new HashMap<>();
+    private Long ledgerVersion;
+
+    public synchronized void open(LocalTime start, LocalTime end) {
+        setRange(open, ceilMinute(start), floorMinute(end));
+    }
+
+    public synchronized void close(LocalTime start, LocalTime end) {
+        clearRange(open, floorMinute(start), ceilMinute(end));
+    }
+
+    /**
+     * Books (or moves, if the visit was already booked) the given visit.
+     */
+    public synchronized void book(Long visitId, LocalTime start, int durationMinutes) {
+        int from = floorMinute(start);
+        int to = Math.min(from + durationMinutes, MINUTES_PER_DAY);
+        int[] previous = bookings.put(visitId, new int[]{from, to});
+        if (previous != null) {
+            rebuildBooked();
+        } else {
+            setRange(booked, from, to);
+        }
+    }
+
+    public synchronized Long getLedgerVersion() {
+        return ledgerVersion;
+    }
+
+    public synchronized void setLedgerVersion(Long ledgerVersion) {
+        this.ledgerVersion = ledgerVersion;
+    }
+
+    public synchronized void release(Long visitId) {
+        if (bookings.remove(visitId) != null) {
+            rebuildBooked();
+        }
+    }
+
+    public synchronized boolean isOpen(LocalTime start, int durationMinutes) {
+        int from = floorMinute(start);
+        int to = from + durationMinutes;
+        return to <= MINUTES_PER_DAY && allSet(open, from, to);
+    }
+
+    public synchronized boolean overlapsBooking(LocalTime start, int durationMinutes, Long excludingVisitId) {
+        int from = floorMinute(start);
+        int to = Math.min(from + durationMinutes, MINUTES_PER_DAY);
+        int[] excluded = excludingVisitId == null ? null : bookings.get(excludingVisitId);
+        if (excluded == null || excluded[1] <= from || to <= excluded[0]) {
+            return anySet(booked, from, to);
+        }
+        // The excluded visit overlaps the requested range: its minutes may still be shared with others
+        for (Map.Entry<Long, int[]> entry : bookings.entrySet()) {
+            if (Objects.equals(entry.getKey(), excludingVisitId)) continue;
+            int[] interval = entry.getValue();
+            if (interval[0] < to && from < interval[1]) return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean isFree(LocalTime start, int durationMinutes, Long excludingVisitId) {
+        return isOpen(start, durationMinutes) && !overlapsBooking(start, durationMinutes, excludingVisitId);
+    }
+
+    /**
+     * Minutes taken by the booked visits, used to compare how loaded veterinarians are.
+     */
+    public synchronized int bookedMinutes() {
+        return bookings.values().stream().mapToInt(interval -> interval[1] - interval[0]).sum();
+    }
+
+    /**
+     * Earliest start, at or after {@code from}, of a free run of {@code durationMinutes} minutes.
+     */
+    public synchronized Optional<LocalTime> firstFreeSlot(LocalTime from, int durationMinutes) {
+        int run = 0;
+        for (int minute = ceilMinute(from); minute < MINUTES_PER_DAY; minute++) {
+            run = isSet(open, minute) && !isSet(booked, minute) ? run + 1 : 0;
+            if (run == durationMinutes) {
+                return Optional.of(LocalTime.ofSecondOfDay((long) (minute - durationMinutes + 1) * 60));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void rebuildBooked() {
+        clearRange(booked, 0, MINUTES_PER_DAY);
+        bookings.values().forEach(interval -> setRange(booked, interval[0], interval[1]));
+    }
+
+    private static int floorMinute(LocalTime time) {
+        return time.toSecondOfDay() / 60;
+    }
+
+    private static int ceilMinute(LocalTime time) {
+        return (time.toSecondOfDay() + 59) / 60;
+    }
+
+    private static boolean isSet(long[] bits, int minute) {
+        return (bits[minute >>> 6] & (1L << minute)) != 0;
+    }
+
+    private static void setRange(long[] bits, int from, int to) {
+        for (int word = from >>> 6; from < to; word++) {
+            long mask = mask(from, to, word);
+            bits[word] |= mask;
+            from = (word + 1) << 6;
+        }
+    }
+
+    private static void clearRange(long[] bits, int from, int to) {
+        for (int word = from >>> 6; from < to; word++) {
+            bits[word] &= ~mask(from, to, word);
+            from = (word + 1) << 6;
+        }
+    }
+
+    private static boolean allSet(long[] bits, int from, int to) {
+        for (int word = from >>> 6; from < to; word++) {
+            long mask = mask(from, to, word);
+            if ((bits[word] & mask) != mask) return false;
+            from = (word + 1) << 6;
+        }
+        return true;
+    }
+
+    private static boolean anySet(long[] bits, int from, int to) {
+        for (int word = from >>> 6; from < to; word++) {
+            if ((bits[word] & mask(from, to, word)) != 0) return true;
+            from = (word + 1) << 6;
+        }
+        return false;
+    }
+
+    /**
+     * Bits of {@code word} that fall in [from, to), {@code from} being inside that word.
+     */
+    private static long mask(int from, int to, int word) {
+        int wordEnd = (word + 1) << 6;
+        long high = to >= wordEnd ? -1L : (1L << (to & 63)) - 1;
+        return high & (-1L << (from & 63));
+    }
+}
@@ -8,7 +8,10 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
-@Table(name = "invoice")
+@Table(name = "invoice", indexes = {
+        @Index(name = "idx_invoice_date", columnList = "invoice_date, id"),
+        @Index(name = "idx_invoice_date_status", columnList = "invoice_date, status")
+})
 public class Invoice {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,10 +6,14 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "medication_batch")
+@Table(name = "medication_batch", indexes = {
+        @Index(name = "idx_medication_batch_expiry_quantity", columnList = "expiry_date, current_quantity"),
+        @Index(name = "idx_medication_batch_medication_expiry", columnList = "medication_id, expiry_date")
+})
 public class MedicationBatch {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_batch_seq")
+    @SequenceGenerator(name = "medication_batch_seq", sequenceName = "medication_batch_seq", allocationSize = 50)
     private Long id;
     private Long lotNumber;
     private LocalDate receivedDate;
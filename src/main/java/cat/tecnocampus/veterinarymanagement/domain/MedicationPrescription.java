@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "medication_prescription")
 public class MedicationPrescription {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_prescription_seq")
+    @SequenceGenerator(name = "medication_prescription_seq", sequenceName = "medication_prescription_seq", allocationSize = 50)
     private Long id;
     private Integer quantityPrescribed;
     private String dosageInstructions;
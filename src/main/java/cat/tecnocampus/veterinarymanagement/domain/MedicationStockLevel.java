@@ -0,0 +1,35 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Units of a medication on hand, summed over all its batches. It is kept up to date with an atomic
+ * increment in the same transaction as every batch change, so stock and low stock checks read one row
+ * instead of every batch; {@code reconciledAt} is the last time it was recomputed from the batches.
+ */
+@Entity
+@Table(name = "medication_stock_level")
+@NoArgsConstructor
+public class MedicationStockLevel {
+    @Id
+    @Column(name = "medication_id")
+    private Long medicationId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    private LocalDateTime reconciledAt;
+
+    public MedicationStockLevel(Long medicationId, int quantity) {
+        this.medicationId = medicationId;
+        this.quantity = quantity;
+        this.reconciledAt = LocalDateTime.now();
+    }
+
+    public Long getMedicationId() { return medicationId; }
+    public Integer getQuantity() { return quantity; }
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+}
@@ -0,0 +1,56 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Ledger entry of the stock left in a batch when it was retired because it expired. The batch itself is
+ * deleted, so its identification and cost are copied here.
+ */
+@Entity
+@Table(name = "medication_write_off", indexes = {
+        @Index(name = "idx_write_off_date", columnList = "written_off_on")
+})
+@NoArgsConstructor
+public class MedicationWriteOff {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medication_id", nullable = false)
+    private Medication medication;
+
+    private Long batchId;
+    private Long lotNumber;
+    private LocalDate expiryDate;
+    private Integer quantity;
+    private Double unitCost;
+    private Double totalCost;
+
+    @Column(name = "written_off_on", nullable = false)
+    private LocalDate writtenOffOn;
+
+    public MedicationWriteOff(MedicationBatch batch, LocalDate writtenOffOn) {
+        this.medication = batch.getMedication();
+        this.batchId = batch.getId();
+        this.lotNumber = batch.getLotNumber();
+        this.expiryDate = batch.getExpiryDate();
+        this.quantity = batch.getCurrentQuantity();
+        this.unitCost = batch.getPurchasePricePerUnit() != null ? batch.getPurchasePricePerUnit() : 0.0;
+        this.totalCost = quantity * unitCost;
+        this.writtenOffOn = writtenOffOn;
+    }
+
+    public Long getId() { return id; }
+    public Medication getMedication() { return medication; }
+    public Long getBatchId() { return batchId; }
+    public Long getLotNumber() { return lotNumber; }
+    public LocalDate getExpiryDate() { return expiryDate; }
+    public Integer getQuantity() { return quantity; }
+    public Double getUnitCost() { return unitCost; }
+    public Double getTotalCost() { return totalCost; }
+    public LocalDate getWrittenOffOn() { return writtenOffOn; }
+}
@@ -0,0 +1,48 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Number of prescriptions of one medication made by one veterinarian on one day. The prescription reports add
+ * these rows up instead of joining every visit and prescription of the period; they are kept up to date with
+ * an atomic increment in the same transaction as every prescription change.
+ */
+@Entity
+@Table(name = "prescription_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_prescription_daily_rollup",
+                columnNames = {"rollup_date", "medication_id", "veterinarian_id"}),
+        indexes = @Index(name = "idx_prescription_daily_rollup_medication", columnList = "medication_id, rollup_date"))
+@NoArgsConstructor
+public class PrescriptionDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "medication_id", nullable = false)
+    private Long medicationId;
+
+    @Column(name = "veterinarian_id")
+    private Long veterinarianId;
+
+    @Column(nullable = false)
+    private Long prescriptionCount;
+
+    public PrescriptionDailyRollup(LocalDate rollupDate, Long medicationId, Long veterinarianId, long prescriptionCount) {
+        this.rollupDate = rollupDate;
+        this.medicationId = medicationId;
+        this.veterinarianId = veterinarianId;
+        this.prescriptionCount = prescriptionCount;
+    }
+
+    public Long getId() { return id; }
+    public LocalDate getRollupDate() { return rollupDate; }
+    public Long getMedicationId() { return medicationId; }
+    public Long getVeterinarianId() { return veterinarianId; }
+    public Long getPrescriptionCount() { return prescriptionCount; }
+}
@@ -0,0 +1,78 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Subset of the iCalendar RRULE used to book recurring visits: {@code FREQ} (DAILY, WEEKLY or MONTHLY),
+ * an optional {@code INTERVAL} (1 by default) and at least one of {@code COUNT} and {@code UNTIL}
+ * (YYYY-MM-DD or YYYYMMDD, inclusive), e.g. {@code FREQ=WEEKLY;INTERVAL=2;COUNT=10}.
+ * <p>
+ * Monthly occurrences keep the day of month of the first one, or the last day of shorter months.
+ */
+public record RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDate until) {
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    public RecurrenceRule {
+        if (frequency == null) throw new IllegalArgumentException("The recurrence needs a FREQ");
+        if (interval < 1) throw new IllegalArgumentException("INTERVAL must be positive");
+        if (count == null && until == null) throw new IllegalArgumentException("The recurrence needs a COUNT or an UNTIL");
+        if (count != null && count < 1) throw new IllegalArgumentException("COUNT must be positive");
+    }
+
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.isBlank()) throw new IllegalArgumentException("The recurrence cannot be blank");
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDate until = null;
+        String text = rule.trim().toUpperCase(Locale.ROOT);
+        if (text.startsWith("RRULE:")) text = text.substring("RRULE:".length());
+        for (String part : text.split(";")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length != 2) throw new IllegalArgumentException("Invalid recurrence part '" + part + "'");
+            String value = pair[1].trim();
+            try {
+                switch (pair[0].trim()) {
+                    case "FREQ" -> frequency = Frequency.valueOf(value);
+                    case "INTERVAL" -> interval = Integer.parseInt(value);
+                    case "COUNT" -> count = Integer.parseInt(value);
+                    case "UNTIL" -> until = value.length() == 8
+                            ? LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE)
+                            : LocalDate.parse(value);
+                    default -> throw new IllegalArgumentException("Unsupported recurrence part '" + pair[0] + "'");
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid value in recurrence part '" + part + "'");
+            }
+        }
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    /**
+     * Dates of the occurrences starting with (and including) {@code first}.
+     *
+     * @throws IllegalArgumentException if the rule yields more than {@code max} occurrences
+     */
+    public List<LocalDate> occurrences(LocalDate first, int max) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = 0; count == null || i < count; i++) {
+            LocalDate date = switch (frequency) {
+                case DAILY -> first.plusDays((long) i * interval);
+                case WEEKLY -> first.plusWeeks((long) i * interval);
+                case MONTHLY -> first.plusMonths((long) i * interval);
+            };
+            if (until != null && date.isAfter(until)) break;
+            if (dates.size() == max) {
+                throw new IllegalArgumentException("A recurrence cannot have more than " + max + " occurrences");
+            }
+            dates.add(date);
+        }
+        return dates;
+    }
+}
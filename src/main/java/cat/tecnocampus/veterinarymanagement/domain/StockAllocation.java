@@ -0,0 +1,54 @@
+package cat.tecnocampus.veterinarymanagement.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a quantity of one medication is taken from its batches, first expired first out.
+ * <p>
+ * The allocation is only computed here; {@link #apply()} writes it into the batches and returns the ones it
+ * emptied so the caller can remove them.
+ */
+public record StockAllocation(List<Portion> portions, int requested, int allocated) {
+
+    public record Portion(MedicationBatch batch, int quantity) {
+        public boolean emptiesBatch() {
+            return batch.getCurrentQuantity() == quantity;
+        }
+    }
+
+    /**
+     * @param batches the usable batches, already ordered by expiry date
+     */
+    public static StockAllocation firstExpiredFirstOut(List<MedicationBatch> batches, int quantity) {
+        List<Portion> portions = new ArrayList<>();
+        int remaining = quantity;
+        for (MedicationBatch batch : batches) {
+            if (remaining == 0) break;
+            int available = batch.getCurrentQuantity() != null ? batch.getCurrentQuantity() : 0;
+            if (available <= 0) continue;
+            int taken = Math.min(available, remaining);
+            portions.add(new Portion(batch, taken));
+            remaining -= taken;
+        }
+        return new StockAllocation(List.copyOf(portions), quantity, quantity - remaining);
+    }
+
+    public boolean isComplete() {
+        return allocated == requested;
+    }
+
+    /**
+     * Deducts every portion from its batch.
+     *
+     * @return the batches left empty
+     */
+    public List<MedicationBatch> apply() {
+        List<MedicationBatch> emptied = new ArrayList<>();
+        for (Portion portion : portions) {
+            if (portion.emptiesBatch()) emptied.add(portion.batch());
+            portion.batch().setCurrentQuantity(portion.batch().getCurrentQuantity() - portion.quantity());
+        }
+        return emptied;
+    }
+}
@@ -3,7 +3,6 @@ package cat.tecnocampus.veterinarymanagement.domain;
 import jakarta.persistence.*;
 import java.util.List;
 
-import cat.tecnocampus.veterinarymanagement.application.exceptions.VisitSlotUnavailableException;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalTime;
@@ -33,24 +32,5 @@ public class Veterinarian extends Person {
         if (availability == null) return false;
         return availability.stream().anyMatch(a -> a.covers(date, start, end));
     }
-
-    public void validateAvailability(LocalDate date, LocalTime start, int durationMinutes, List<Visit> existingVisits) {
-        LocalTime end = start.plusMinutes(durationMinutes);
-        
-        if (!isWorking(date, start, end)) {
-            throw new VisitSlotUnavailableException("Veterinarian has no available slot for the requested time");
-        }
-
-        boolean overlaps = existingVisits.stream()
-                .anyMatch(v -> timeOverlaps(v.getVisitTime(), v.getVisitTime().plusMinutes(v.getDuration()), start, end));
-        
-        if (overlaps) {
-            throw new VisitSlotUnavailableException("overlaps with another visit");
-        }
-    }
-
-    private boolean timeOverlaps(LocalTime s1, LocalTime e1, LocalTime s2, LocalTime e2) {
-        return s1.isBefore(e2) && s2.isBefore(e1);
-    }
 }
 
@@ -11,11 +11,20 @@ import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitStatusInvalid
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "visit")
+@Table(name = "visit", indexes = {
+        @Index(name = "idx_visit_veterinarian_date", columnList = "veterinarian_id, visit_date"),
+        @Index(name = "idx_visit_date_time_id", columnList = "visit_date, visit_time, id"),
+        @Index(name = "idx_visit_pet_date", columnList = "pet_id, visit_date"),
+        @Index(name = "idx_visit_status_date_time", columnList = "status, visit_date, visit_time")
+})
 @NoArgsConstructor
 public class Visit {
+    /** How long after its start a visit can be marked as owner not showed up. */
+    public static final java.time.Duration NO_SHOW_DELAY = java.time.Duration.ofMinutes(10);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visit_seq")
+    @SequenceGenerator(name = "visit_seq", sequenceName = "visit_seq", allocationSize = 50)
     private Long id;
     private LocalDate visitDate;
     private LocalTime visitTime;
@@ -44,7 +53,7 @@ public class Visit {
     @JoinColumn(name = "pet_owner_id")
     private PetOwner petOwner;
 
-    @OneToMany(mappedBy = "visit", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "visit", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<MedicationPrescription> medicationPrescriptions;
 
     @ManyToOne
@@ -146,18 +155,22 @@ public class Visit {
 
     /**
      * Marks the visit as owner not showed up.
-     * 
+     *
+     * @param now the current date and time
+     * @return the history record of this action
      * @throws VisitInvalidStateException if the visit is not in SCHEDULED state or if it is too early to mark as not showed up
      */
-    public void markAsNotShowedUp() {
+    public VisitHistory markAsNotShowedUp(java.time.LocalDateTime now) {
         if (this.status != VisitStatus.SCHEDULED) {
             throw new VisitInvalidStateException("Only SCHEDULED visits can be marked as not showed up");
         }
         java.time.LocalDateTime scheduled = java.time.LocalDateTime.of(this.visitDate, this.visitTime);
-        if (java.time.LocalDateTime.now().isBefore(scheduled.plusMinutes(10))) {
+        if (now.isBefore(scheduled.plus(NO_SHOW_DELAY))) {
             throw new VisitInvalidStateException("Cannot mark visit as not showed up before 10 minutes after scheduled time");
         }
         this.status = VisitStatus.NOT_SHOWED_UP;
+
+        return new VisitHistory(this.id, this.visitDate, this.visitTime, null, null, "NO_SHOW");
     }
 
     /**
@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 public class VisitHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visit_history_seq")
+    @SequenceGenerator(name = "visit_history_seq", sequenceName = "visit_history_seq", allocationSize = 50)
     private Long id;
 
     private Long visitId;
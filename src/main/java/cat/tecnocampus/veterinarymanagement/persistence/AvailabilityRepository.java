@@ -5,6 +5,7 @@ import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +17,33 @@ public interface AvailabilityRepository extends JpaRepository<Availability, Long
     Optional<Availability> findAvailabilityById(Long id);
 
     List<Availability> findByVeterinarian(Veterinarian vet);
+
+    @Query("""
+        SELECT DISTINCT a FROM Availability a
+        JOIN FETCH a.veterinarian
+        LEFT JOIN FETCH a.exceptions
+        WHERE a.veterinarian.id = :veterinarianId
+          AND a.dayOfWeek = :dayOfWeek
+          AND :date BETWEEN a.periodStart AND a.periodEnd
+        """)
+    List<Availability> findWithExceptionsByVeterinarianAndDay(Long veterinarianId, int dayOfWeek, LocalDate date);
+
+    @Query("""
+        SELECT DISTINCT a FROM Availability a
+        JOIN FETCH a.veterinarian
+        LEFT JOIN FETCH a.exceptions
+        WHERE a.veterinarian.id = :veterinarianId
+          AND a.periodStart <= :end
+          AND a.periodEnd >= :start
+        """)
+    List<Availability> findWithExceptionsByVeterinarianOverlapping(Long veterinarianId, LocalDate start, LocalDate end);
+
+    @Query("""
+        SELECT DISTINCT a FROM Availability a
+        JOIN FETCH a.veterinarian
+        LEFT JOIN FETCH a.exceptions
+        WHERE a.periodStart <= :end
+          AND a.periodEnd >= :start
+        """)
+    List<Availability> findWithExceptionsOverlapping(LocalDate start, LocalDate end);
 }
@@ -0,0 +1,21 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.domain.BookingLedger;
+import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BookingLedgerRepository extends JpaRepository<BookingLedger, Long> {
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<BookingLedger> findByVeterinarianAndBookingDate(Veterinarian veterinarian, LocalDate bookingDate);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    List<BookingLedger> findByVeterinarianAndBookingDateIn(Veterinarian veterinarian, Collection<LocalDate> bookingDates);
+}
@@ -0,0 +1,59 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the data source in a {@link ConcurrencyLimitedDataSource} when virtual threads are enabled
+ * ({@code spring.threads.virtual.enabled}).
+ * <p>
+ * The limit is {@code application.datasource.max-concurrent-connections}, by default the size of the Hikari pool,
+ * so the pool never has more borrowers than connections. Metrics: {@code datasource.limiter.available} and
+ * {@code datasource.limiter.waiting}.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DataSourceConcurrencyLimiter implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final int maxConcurrentConnections;
+    private final Duration acquireTimeout;
+
+    public DataSourceConcurrencyLimiter(ObjectProvider<MeterRegistry> meterRegistry,
+                                        @Value("${application.datasource.max-concurrent-connections:0}") int maxConcurrentConnections,
+                                        @Value("${application.datasource.acquire-timeout:PT30S}") Duration acquireTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrentConnections = maxConcurrentConnections;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) return bean;
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(dataSource, permits(dataSource), acquireTimeout);
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("datasource.limiter.available", limited, ConcurrencyLimitedDataSource::availablePermits)
+                    .description("Database connections that can still be checked out without waiting")
+                    .register(registry);
+            Gauge.builder("datasource.limiter.waiting", limited, ConcurrencyLimitedDataSource::waiting)
+                    .description("Threads waiting for a database connection")
+                    .register(registry);
+        });
+        return limited;
+    }
+
+    private int permits(DataSource dataSource) {
+        if (maxConcurrentConnections > 0) return maxConcurrentConnections;
+        if (dataSource instanceof HikariDataSource hikari) return hikari.getMaximumPoolSize();
+        return 10;
+    }
+}
@@ -1,13 +1,18 @@
 package cat.tecnocampus.veterinarymanagement.persistence;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.InvoiceExportInformation;
 import cat.tecnocampus.veterinarymanagement.domain.Invoice;
 import cat.tecnocampus.veterinarymanagement.domain.InvoiceStatus;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -21,4 +26,20 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
         AND (:petId IS NULL OR i.visit.pet.id = :petId)
       """)
     List<Invoice> findInvoicesByFilters(LocalDate startDate, LocalDate endDate, InvoiceStatus status, Long petOwnerId, Long petId);
+
+    /**
+     * Invoices of the range as flat rows, read through a JDBC cursor. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+      SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.InvoiceExportInformation(
+          i.id, i.invoiceDate, i.status, i.totalAmount, v.id, po.id)
+      FROM Invoice i
+      LEFT JOIN i.visit v
+      LEFT JOIN i.petOwner po
+      WHERE (:from IS NULL OR i.invoiceDate >= :from)
+        AND (:to IS NULL OR i.invoiceDate <= :to)
+      ORDER BY i.invoiceDate, i.id
+      """)
+    Stream<InvoiceExportInformation> streamInvoiceExport(LocalDate from, LocalDate to);
 }
@@ -1,10 +1,16 @@
 package cat.tecnocampus.veterinarymanagement.persistence;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.StockQuantityInformation;
 import cat.tecnocampus.veterinarymanagement.domain.Medication;
 import cat.tecnocampus.veterinarymanagement.domain.MedicationBatch;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +34,64 @@ public interface MedicationBatchRepository extends JpaRepository<MedicationBatch
         ORDER BY b.expiryDate ASC
         """)
     List<MedicationBatch> findAvailableBatchesByMedication(Medication medication);
-}
\ No newline at end of file
+
+    /**
+     * Usable batches of the medication in first-expired-first-out order, locked (SELECT ... FOR UPDATE) until the
+     * end of the transaction so concurrent deductions of the same medication are serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("""
+        SELECT b
+        FROM MedicationBatch b
+        WHERE b.medication.id = :medicationId
+          AND b.expiryDate > :today
+          AND b.currentQuantity > 0
+        ORDER BY b.expiryDate ASC, b.id ASC
+        """)
+    List<MedicationBatch> lockAvailableBatchesByMedication(Long medicationId, LocalDate today);
+
+    @Query("""
+        SELECT COALESCE(SUM(b.currentQuantity), 0)
+        FROM MedicationBatch b
+        WHERE b.medication.id = :medicationId
+        """)
+    int sumCurrentQuantityByMedication(Long medicationId);
+
+    /**
+     * Units on hand per medication. Medications without batches are omitted.
+     */
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.StockQuantityInformation(
+            b.medication.id, SUM(b.currentQuantity)
+        )
+        FROM MedicationBatch b
+        GROUP BY b.medication.id
+        """)
+    List<StockQuantityInformation> sumCurrentQuantityGroupedByMedication();
+
+    /**
+     * Batches that still hold stock and expired on or before {@code today}, read through the
+     * (expiry_date, current_quantity) index.
+     */
+    @Query("""
+        SELECT b
+        FROM MedicationBatch b
+        JOIN FETCH b.medication
+        WHERE b.expiryDate <= :today
+          AND b.currentQuantity > 0
+        ORDER BY b.expiryDate ASC, b.id ASC
+        """)
+    List<MedicationBatch> findExpiredWithStock(LocalDate today);
+
+    @Query("""
+        SELECT b
+        FROM MedicationBatch b
+        JOIN FETCH b.medication
+        WHERE b.expiryDate > :today
+          AND b.expiryDate <= :until
+          AND b.currentQuantity > 0
+        ORDER BY b.expiryDate ASC, b.id ASC
+        """)
+    List<MedicationBatch> findExpiringBetween(LocalDate today, LocalDate until);
+}
@@ -1,5 +1,7 @@
 package cat.tecnocampus.veterinarymanagement.persistence;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.IncompatibilityFingerprintInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationIncompatibilityInformation;
 import cat.tecnocampus.veterinarymanagement.domain.MedicationIncompatibility;
 import cat.tecnocampus.veterinarymanagement.domain.Medication;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -15,5 +17,20 @@ public interface MedicationIncompatibilityRepository extends JpaRepository<Medic
 
     @Query("SELECT m FROM MedicationIncompatibility m WHERE m.medicationA = :med OR m.medicationB = :med")
     List<MedicationIncompatibility> findByMedication(Medication med);
-}
 
+    @Query("""
+            SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationIncompatibilityInformation(
+                m.id, a.id, a.name, b.id, b.name, m.persistsUntil, m.description)
+            FROM MedicationIncompatibility m
+            JOIN m.medicationA a
+            JOIN m.medicationB b
+            """)
+    List<MedicationIncompatibilityInformation> findAllInformation();
+
+    @Query("""
+            SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.IncompatibilityFingerprintInformation(
+                COUNT(m), COALESCE(MAX(m.id), 0L))
+            FROM MedicationIncompatibility m
+            """)
+    IncompatibilityFingerprintInformation findFingerprint();
+}
@@ -0,0 +1,7 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.domain.MedicationPrescription;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MedicationPrescriptionRepository extends JpaRepository<MedicationPrescription, Long> {
+}
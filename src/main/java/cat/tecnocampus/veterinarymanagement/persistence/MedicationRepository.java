@@ -2,9 +2,14 @@ package cat.tecnocampus.veterinarymanagement.persistence;
 
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationInformation;
 import cat.tecnocampus.veterinarymanagement.domain.Medication;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface MedicationRepository extends JpaRepository<Medication, Long> {
@@ -16,4 +21,24 @@ public interface MedicationRepository extends JpaRepository<Medication, Long> {
         WHERE m.id = :id
         """)
     Optional<MedicationInformation> findMedicationInformationById(Long id);
+
+    /**
+     * Medications with a stock level below their reorder threshold and no low stock alert, or with an alert and
+     * a stock level at or above the threshold.
+     */
+    @Query("""
+        SELECT m.id FROM Medication m, MedicationStockLevel l
+        WHERE l.medicationId = m.id
+          AND ((l.quantity < m.reorderThreshold AND NOT EXISTS (SELECT a.id FROM LowStockAlert a WHERE a.medication = m))
+            OR (l.quantity >= m.reorderThreshold AND EXISTS (SELECT a.id FROM LowStockAlert a WHERE a.medication = m)))
+        """)
+    List<Long> findIdsWithStaleLowStockAlert();
+
+    /**
+     * Locks the medication's row (SELECT ... FOR UPDATE) until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("SELECT m.id FROM Medication m WHERE m.id = :id")
+    Optional<Long> lockById(Long id);
 }
@@ -0,0 +1,104 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.domain.MedicationStockLevel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface MedicationStockLevelRepository extends JpaRepository<MedicationStockLevel, Long> {
+
+    /**
+     * Adds {@code delta} in the database itself, so concurrent changes are never lost. The persistence context is
+     * left alone: a stock level entity loaded earlier in the transaction keeps its old quantity, read the new one
+     * with {@link #findQuantityByMedicationId}.
+     *
+     * @return 0 if the medication has no stock level row yet
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE MedicationStockLevel s
+        SET s.quantity = s.quantity + :delta
+        WHERE s.medicationId = :medicationId
+        """)
+    int addQuantity(Long medicationId, int delta);
+
+    /**
+     * Reads the quantity from the database, never from an entity loaded earlier in the transaction that
+     * {@link #addQuantity} may have left stale.
+     */
+    @Query("SELECT s.quantity FROM MedicationStockLevel s WHERE s.medicationId = :medicationId")
+    Optional<Integer> findQuantityByMedicationId(Long medicationId);
+
+    /**
+     * Reads the quantity and locks the row (SELECT ... FOR UPDATE) until the end of the transaction. Batch changes
+     * add to the row after changing the batches, so once it is locked every batch change is either committed or
+     * still to be added.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("SELECT s.quantity FROM MedicationStockLevel s WHERE s.medicationId = :medicationId")
+    Optional<Integer> lockQuantityByMedicationId(Long medicationId);
+
+    /**
+     * Locks every row, in medication order, until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("SELECT s.medicationId FROM MedicationStockLevel s ORDER BY s.medicationId")
+    List<Long> lockAll();
+
+    /**
+     * Creates the medication's row with no units if it has none, to be set with {@link #reconcile}. Callers hold
+     * the medication's row lock, so a concurrent creator finds the row instead of failing on a duplicate key.
+     *
+     * @return 0 if the row already exists
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        INSERT INTO MedicationStockLevel (medicationId, quantity)
+        SELECT m.id, 0 FROM Medication m
+        WHERE m.id = :medicationId
+          AND NOT EXISTS (SELECT 1 FROM MedicationStockLevel s WHERE s.medicationId = :medicationId)
+        """)
+    int insertIfAbsent(Long medicationId);
+
+    /**
+     * Sets the medication's quantity to the units of its batches, in the database itself.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE MedicationStockLevel s
+        SET s.quantity = (SELECT CAST(COALESCE(SUM(b.currentQuantity), 0) AS Integer)
+                          FROM MedicationBatch b WHERE b.medication.id = s.medicationId),
+            s.reconciledAt = :now
+        WHERE s.medicationId = :medicationId
+        """)
+    int reconcile(Long medicationId, LocalDateTime now);
+
+    /**
+     * Sets every quantity to the units of the medication's batches with one statement.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE MedicationStockLevel s
+        SET s.quantity = (SELECT CAST(COALESCE(SUM(b.currentQuantity), 0) AS Integer)
+                          FROM MedicationBatch b WHERE b.medication.id = s.medicationId),
+            s.reconciledAt = :now
+        """)
+    int reconcileAll(LocalDateTime now);
+
+    @Query("""
+        SELECT COUNT(s) FROM MedicationStockLevel s
+        WHERE s.quantity <> (SELECT COALESCE(SUM(b.currentQuantity), 0)
+                             FROM MedicationBatch b WHERE b.medication.id = s.medicationId)
+        """)
+    long countDrifted();
+}
@@ -0,0 +1,24 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationWriteOffReportInformation;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationWriteOff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MedicationWriteOffRepository extends JpaRepository<MedicationWriteOff, Long> {
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationWriteOffReportInformation(
+            m.id, m.name, COUNT(w), SUM(w.quantity), SUM(w.totalCost)
+        )
+        FROM MedicationWriteOff w
+        JOIN w.medication m
+        WHERE w.writtenOffOn BETWEEN :from AND :to
+        GROUP BY m.id, m.name
+        ORDER BY SUM(w.totalCost) DESC, m.id
+        """)
+    List<MedicationWriteOffReportInformation> findWriteOffReport(LocalDate from, LocalDate to);
+}
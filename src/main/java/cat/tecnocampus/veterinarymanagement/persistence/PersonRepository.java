@@ -9,7 +9,6 @@ import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,16 +43,6 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
     @Query("SELECT p FROM PetOwner p")
     List<PetOwner> findAllPetOwners();
 
-    @Query("""
-        SELECT DISTINCT v FROM Veterinarian v
-        JOIN v.availability a
-        WHERE a.dayOfWeek = :dayOfWeek
-        AND :startTime >= a.startTime 
-        AND :endTime <= a.endTime
-        AND :date >= a.periodStart AND :date <= a.periodEnd
-    """)
-    List<Veterinarian> findAvailableVeterinarians(int dayOfWeek, LocalTime startTime, LocalTime endTime, LocalDate date);
-
     @Query("""
         SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianDemandInformation(
             v.id,
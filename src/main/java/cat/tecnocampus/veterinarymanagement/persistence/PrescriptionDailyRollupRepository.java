@@ -0,0 +1,134 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionCountInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianPrescriptionCountInformation;
+import cat.tecnocampus.veterinarymanagement.domain.PrescriptionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PrescriptionDailyRollupRepository extends JpaRepository<PrescriptionDailyRollup, Long> {
+
+    /**
+     * Adds {@code delta} prescriptions in the database itself, so concurrent changes are never lost.
+     *
+     * @return 0 if there is no row yet for that day, medication and veterinarian
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE PrescriptionDailyRollup r
+        SET r.prescriptionCount = r.prescriptionCount + :delta
+        WHERE r.rollupDate = :date
+          AND r.medicationId = :medicationId
+          AND (r.veterinarianId = :veterinarianId OR (:veterinarianId IS NULL AND r.veterinarianId IS NULL))
+        """)
+    int addPrescriptions(LocalDate date, Long medicationId, Long veterinarianId, long delta);
+
+    /**
+     * Creates the row of that day, medication and veterinarian with no prescriptions if it does not exist. Callers
+     * hold the medication's row lock, so a concurrent creator finds the row instead of failing on a duplicate key.
+     *
+     * @return 0 if the row already exists
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        INSERT INTO PrescriptionDailyRollup (rollupDate, medicationId, veterinarianId, prescriptionCount)
+        SELECT :date, m.id, :veterinarianId, 0
+        FROM Medication m
+        WHERE m.id = :medicationId
+          AND NOT EXISTS (
+            SELECT 1 FROM PrescriptionDailyRollup r
+            WHERE r.rollupDate = :date
+              AND r.medicationId = :medicationId
+              AND (r.veterinarianId = :veterinarianId OR (:veterinarianId IS NULL AND r.veterinarianId IS NULL)))
+        """)
+    int insertEmptyIfAbsent(LocalDate date, Long medicationId, Long veterinarianId);
+
+    /**
+     * Sets every row that differs from the prescriptions to their count, each row in one statement.
+     *
+     * @return the number of rows changed
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE PrescriptionDailyRollup r
+        SET r.prescriptionCount = (
+            SELECT COUNT(mp) FROM MedicationPrescription mp JOIN mp.visit v LEFT JOIN v.veterinarian vet
+            WHERE v.visitDate = r.rollupDate
+              AND mp.medication.id = r.medicationId
+              AND (vet.id = r.veterinarianId OR (vet.id IS NULL AND r.veterinarianId IS NULL)))
+        WHERE r.prescriptionCount <> (
+            SELECT COUNT(mp) FROM MedicationPrescription mp JOIN mp.visit v LEFT JOIN v.veterinarian vet
+            WHERE v.visitDate = r.rollupDate
+              AND mp.medication.id = r.medicationId
+              AND (vet.id = r.veterinarianId OR (vet.id IS NULL AND r.veterinarianId IS NULL)))
+        """)
+    int reconcileCounts();
+
+    /**
+     * Creates the rows of the prescriptions that have none.
+     *
+     * @return the number of rows created
+     */
+    @Modifying
+    @Query("""
+        INSERT INTO PrescriptionDailyRollup (rollupDate, medicationId, veterinarianId, prescriptionCount)
+        SELECT v.visitDate, m.id, vet.id, COUNT(mp)
+        FROM MedicationPrescription mp
+        JOIN mp.visit v
+        JOIN mp.medication m
+        LEFT JOIN v.veterinarian vet
+        WHERE NOT EXISTS (
+            SELECT 1 FROM PrescriptionDailyRollup r
+            WHERE r.rollupDate = v.visitDate
+              AND r.medicationId = m.id
+              AND (r.veterinarianId = vet.id OR (r.veterinarianId IS NULL AND vet.id IS NULL)))
+        GROUP BY v.visitDate, m.id, vet.id
+        """)
+    int insertMissing();
+
+    /**
+     * Recomputes every row from the prescriptions with one statement.
+     *
+     * @return the number of rows created
+     */
+    @Modifying
+    @Query("""
+        INSERT INTO PrescriptionDailyRollup (rollupDate, medicationId, veterinarianId, prescriptionCount)
+        SELECT v.visitDate, m.id, vet.id, COUNT(mp)
+        FROM MedicationPrescription mp
+        JOIN mp.visit v
+        JOIN mp.medication m
+        LEFT JOIN v.veterinarian vet
+        GROUP BY v.visitDate, m.id, vet.id
+        """)
+    int backfill();
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationPrescriptionCountInformation(
+            m.id, m.name, SUM(r.prescriptionCount))
+        FROM PrescriptionDailyRollup r
+        JOIN Medication m ON m.id = r.medicationId
+        WHERE r.rollupDate BETWEEN :from AND :to
+        GROUP BY m.id, m.name
+        HAVING SUM(r.prescriptionCount) > 0
+        ORDER BY SUM(r.prescriptionCount) DESC
+        """)
+    List<MedicationPrescriptionCountInformation> findMedicationPrescriptionCounts(LocalDate from, LocalDate to);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.VeterinarianPrescriptionCountInformation(
+            vet.id, vet.name, vet.lastName, SUM(r.prescriptionCount))
+        FROM PrescriptionDailyRollup r
+        JOIN Veterinarian vet ON vet.id = r.veterinarianId
+        WHERE r.medicationId = :medicationId
+          AND r.rollupDate BETWEEN :from AND :to
+        GROUP BY vet.id, vet.name, vet.lastName
+        HAVING SUM(r.prescriptionCount) > 0
+        ORDER BY SUM(r.prescriptionCount) DESC
+        """)
+    List<VeterinarianPrescriptionCountInformation> findVeterinarianPrescriptionCounts(Long medicationId, LocalDate from, LocalDate to);
+}
@@ -1,45 +1,148 @@
 package cat.tecnocampus.veterinarymanagement.persistence;
 
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescribedMedicationInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescriptionExportInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
 import cat.tecnocampus.veterinarymanagement.domain.Visit;
 import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface VisitRepository extends CrudRepository<Visit, Long> {
+public interface VisitRepository extends CrudRepository<Visit, Long>, VisitSearch, VisitStatusTransitions {
     List<Visit> findByVeterinarianAndVisitDate(Veterinarian veterinarian, LocalDate visitDate);
-    @Query("select distinct v from Visit v " +
-           "left join fetch v.treatment t " +
-           "left join fetch v.medicationPrescriptions mp " +
-           "where v.pet.id = :petId " +
-           "order by v.visitDate asc, v.visitTime asc")
-    List<Visit> findMedicalHistoryByPet(@Param("petId") Long petId);
 
+    /**
+     * Prescriptions are lazy; this loads the visit together with them and their medications in one query.
+     */
+    @EntityGraph(attributePaths = {"medicationPrescriptions", "medicationPrescriptions.medication"})
+    @Query("SELECT v FROM Visit v WHERE v.id = :id")
+    Optional<Visit> findWithPrescriptionsById(Long id);
+
+    /**
+     * Loads the visits with everything they eagerly reference in one query, for the batch state transitions.
+     */
+    @Query("""
+        SELECT v FROM Visit v
+        LEFT JOIN FETCH v.veterinarian
+        LEFT JOIN FETCH v.pet
+        LEFT JOIN FETCH v.petOwner
+        LEFT JOIN FETCH v.treatment
+        LEFT JOIN FETCH v.invoice
+        WHERE v.id IN :ids
+        """)
+    List<Visit> findAllForTransitionByIdIn(Collection<Long> ids);
+
+    /**
+     * Slots of the scheduled visits due at or before the given date and time, oldest first.
+     */
     @Query("""
-        SELECT m.id, m.name, COUNT(mp)
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation(
+            v.id, v.veterinarian.id, v.visitDate, v.visitTime, v.duration
+        )
         FROM Visit v
-        JOIN v.medicationPrescriptions mp
+        WHERE v.status = cat.tecnocampus.veterinarymanagement.domain.VisitStatus.SCHEDULED
+          AND (v.visitDate < :date OR (v.visitDate = :date AND v.visitTime <= :time))
+        ORDER BY v.visitDate, v.visitTime, v.id
+        """)
+    List<BookedSlotInformation> findScheduledDueBy(LocalDate date, LocalTime time, Limit limit);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation(
+            v.id, v.visitDate, v.visitTime, v.duration, v.reasonForVisit, v.pricerPerFifteen, v.status,
+            v.veterinarian.id, v.pet.id, v.petOwner.id,
+            t.id, t.name, t.description, t.cost
+        )
+        FROM Visit v
+        LEFT JOIN v.treatment t
+        WHERE v.veterinarian.id = :veterinarianId
+          AND v.visitDate BETWEEN :start AND :end
+        ORDER BY v.visitDate ASC, v.visitTime ASC
+        """)
+    List<VisitScheduleEntryInformation> findScheduleByVeterinarianAndRange(Long veterinarianId, LocalDate start, LocalDate end);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation(
+            v.id, v.veterinarian.id, v.visitDate, v.visitTime, v.duration
+        )
+        FROM Visit v
+        WHERE v.veterinarian.id = :veterinarianId
+          AND v.visitDate = :date
+          AND v.status <> cat.tecnocampus.veterinarymanagement.domain.VisitStatus.CANCELLED
+        """)
+    List<BookedSlotInformation> findBookedSlotsByVeterinarianAndDate(Long veterinarianId, LocalDate date);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation(
+            v.id, v.veterinarian.id, v.visitDate, v.visitTime, v.duration
+        )
+        FROM Visit v
+        WHERE v.veterinarian.id = :veterinarianId
+          AND v.visitDate BETWEEN :start AND :end
+          AND v.status <> cat.tecnocampus.veterinarymanagement.domain.VisitStatus.CANCELLED
+        """)
+    List<BookedSlotInformation> findBookedSlotsByVeterinarianInRange(Long veterinarianId, LocalDate start, LocalDate end);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.BookedSlotInformation(
+            v.id, v.veterinarian.id, v.visitDate, v.visitTime, v.duration
+        )
+        FROM Visit v
+        WHERE v.visitDate BETWEEN :start AND :end
+          AND v.status <> cat.tecnocampus.veterinarymanagement.domain.VisitStatus.CANCELLED
+        """)
+    List<BookedSlotInformation> findBookedSlotsInRange(LocalDate start, LocalDate end);
+
+    @Query("""
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescribedMedicationInformation(
+            m.id, m.name, MAX(v.visitDate)
+        )
+        FROM MedicationPrescription mp
+        JOIN mp.visit v
         JOIN mp.medication m
-        WHERE v.visitDate BETWEEN :from AND :to
+        WHERE v.pet.id = :petId
+          AND v.visitDate >= :since
         GROUP BY m.id, m.name
-        ORDER BY COUNT(mp) DESC
         """)
-    List<Object[]> findMedicationPrescriptionCounts(LocalDate from, LocalDate to);
+    List<PrescribedMedicationInformation> findMedicationsPrescribedToPetSince(Long petId, LocalDate since);
 
+    @Query("select distinct v from Visit v " +
+           "left join fetch v.treatment t " +
+           "left join fetch v.medicationPrescriptions mp " +
+           "left join fetch mp.medication " +
+           "where v.pet.id = :petId " +
+           "order by v.visitDate asc, v.visitTime asc")
+    List<Visit> findMedicalHistoryByPet(@Param("petId") Long petId);
+
+    /**
+     * Prescriptions of the visits in the range, read through a JDBC cursor. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
     @Query("""
-        SELECT vet.id, vet.name, vet.lastName, COUNT(mp)
-        FROM Visit v
-        JOIN v.veterinarian vet
-        JOIN v.medicationPrescriptions mp
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.PrescriptionExportInformation(
+            mp.id, v.id, v.visitDate, vet.id, v.pet.id, m.id, m.name,
+            mp.quantityPrescribed, mp.dosageInstructions, mp.durationInDays)
+        FROM MedicationPrescription mp
+        JOIN mp.visit v
         JOIN mp.medication m
-        WHERE m.id = :medicationId
-          AND v.visitDate BETWEEN :from AND :to
-        GROUP BY vet.id, vet.name, vet.lastName
-        ORDER BY COUNT(mp) DESC
+        LEFT JOIN v.veterinarian vet
+        WHERE (:from IS NULL OR v.visitDate >= :from)
+          AND (:to IS NULL OR v.visitDate <= :to)
+        ORDER BY v.visitDate, v.id, mp.id
         """)
-    List<Object[]> findVeterinarianPrescriptionCounts(Long medicationId, LocalDate from, LocalDate to);
+    Stream<PrescriptionExportInformation> streamPrescriptionExport(LocalDate from, LocalDate to);
 }
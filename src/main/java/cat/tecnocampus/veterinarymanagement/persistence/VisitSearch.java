@@ -0,0 +1,27 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitSearchCommand;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Filtered visit listing in keyset order (date, time, id). Only the filters given end up in the query, so the
+ * database can pick the index of the filters at hand.
+ */
+public interface VisitSearch {
+    /**
+     * The first {@code limit} visits matching the filters after the (afterDate, afterTime, afterId) position, or
+     * from the start when {@code afterDate} is null.
+     */
+    List<VisitScheduleEntryInformation> searchVisits(VisitSearchCommand filter,
+                                                     LocalDate afterDate, LocalTime afterTime, Long afterId, int limit);
+
+    /**
+     * Every visit matching the filters, read through a JDBC cursor. Must be consumed inside a transaction.
+     */
+    Stream<VisitScheduleEntryInformation> streamVisits(VisitSearchCommand filter);
+}
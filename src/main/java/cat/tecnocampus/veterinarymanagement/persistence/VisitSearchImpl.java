@@ -0,0 +1,97 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitSearchCommand;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds the listing query from the filters given instead of {@code (:x IS NULL OR ...)} predicates, which keep
+ * the database from using the (veterinarian_id, visit_date) and (pet_id, visit_date) indexes. There are at most
+ * 2^7 distinct query strings, so they all stay in Hibernate's query plan cache.
+ */
+class VisitSearchImpl implements VisitSearch {
+    private static final String SELECT = """
+        SELECT new cat.tecnocampus.veterinarymanagement.application.outputDTO.VisitScheduleEntryInformation(
+            v.id, v.visitDate, v.visitTime, v.duration, v.reasonForVisit, v.pricerPerFifteen, v.status,
+            v.veterinarian.id, v.pet.id, v.petOwner.id,
+            t.id, t.name, t.description, t.cost
+        )
+        FROM Visit v
+        LEFT JOIN v.treatment t
+        """;
+    private static final String ORDER = "\nORDER BY v.visitDate ASC, v.visitTime ASC, v.id ASC";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VisitScheduleEntryInformation> searchVisits(VisitSearchCommand filter,
+                                                            LocalDate afterDate, LocalTime afterTime, Long afterId, int limit) {
+        return query(filter, afterDate, afterTime, afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<VisitScheduleEntryInformation> streamVisits(VisitSearchCommand filter) {
+        return query(filter, null, null, null)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+
+    private TypedQuery<VisitScheduleEntryInformation> query(VisitSearchCommand filter,
+                                                             LocalDate afterDate, LocalTime afterTime, Long afterId) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (filter.veterinarian_id() != null) {
+            predicates.add("v.veterinarian.id = :veterinarianId");
+            parameters.put("veterinarianId", filter.veterinarian_id());
+        }
+        if (filter.pet_id() != null) {
+            predicates.add("v.pet.id = :petId");
+            parameters.put("petId", filter.pet_id());
+        }
+        if (filter.pet_owner_id() != null) {
+            predicates.add("v.petOwner.id = :petOwnerId");
+            parameters.put("petOwnerId", filter.pet_owner_id());
+        }
+        if (filter.status() != null) {
+            predicates.add("v.status = :status");
+            parameters.put("status", filter.status());
+        }
+        if (filter.from() != null) {
+            predicates.add("v.visitDate >= :start");
+            parameters.put("start", filter.from());
+        }
+        if (filter.to() != null) {
+            predicates.add("v.visitDate <= :end");
+            parameters.put("end", filter.to());
+        }
+        if (afterDate != null) {
+            predicates.add("""
+                (v.visitDate > :afterDate
+                 OR (v.visitDate = :afterDate AND (v.visitTime > :afterTime
+                     OR (v.visitTime = :afterTime AND v.id > :afterId))))""");
+            parameters.put("afterDate", afterDate);
+            parameters.put("afterTime", afterTime);
+            parameters.put("afterId", afterId);
+        }
+
+        String where = predicates.isEmpty() ? "" : "WHERE " + String.join("\n  AND ", predicates);
+        TypedQuery<VisitScheduleEntryInformation> query =
+                entityManager.createQuery(SELECT + where + ORDER, VisitScheduleEntryInformation.class);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
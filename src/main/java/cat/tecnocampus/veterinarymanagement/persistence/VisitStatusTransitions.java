@@ -0,0 +1,18 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Status changes applied straight to the visit rows, for callers that must not overwrite a visit another
+ * transaction changed after they read it.
+ */
+public interface VisitStatusTransitions {
+    /**
+     * Marks as not showed up those of the given visits that are still scheduled: they are locked with one query
+     * and updated in one JDBC batch.
+     *
+     * @return the ids of the visits actually marked
+     */
+    List<Long> markScheduledAsNotShowedUp(Collection<Long> visitIds);
+}
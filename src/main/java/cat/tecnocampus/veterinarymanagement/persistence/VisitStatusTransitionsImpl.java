@@ -0,0 +1,51 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The visits still in {@code SCHEDULED} are locked and read first, so a visit started or cancelled concurrently, or
+ * already marked by another instance, is left alone and reported as not marked. The ids marked are the ones locked,
+ * never derived from the update counts, which a driver may report as {@code SUCCESS_NO_INFO} for a batch. The
+ * statements run on the connection of the current transaction and bypass the persistence context.
+ */
+class VisitStatusTransitionsImpl implements VisitStatusTransitions {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> markScheduledAsNotShowedUp(Collection<Long> visitIds) {
+        if (visitIds.isEmpty()) return List.of();
+        List<Long> ids = List.copyOf(visitIds);
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> scheduled = new ArrayList<>(ids.size());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id FROM visit WHERE id IN (" + placeholders + ") AND status = 'SCHEDULED' ORDER BY id FOR UPDATE")) {
+                for (int i = 0; i < ids.size(); i++) statement.setLong(i + 1, ids.get(i));
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) scheduled.add(rows.getLong(1));
+                }
+            }
+            if (scheduled.isEmpty()) return scheduled;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE visit SET status = 'NOT_SHOWED_UP' WHERE id = ? AND status = 'SCHEDULED'")) {
+                for (Long id : scheduled) {
+                    statement.setLong(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return scheduled;
+        });
+    }
+}
@@ -1,11 +1,14 @@
 package cat.tecnocampus.veterinarymanagement.security.authentication;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class AuthenticationController {
 
@@ -18,13 +21,16 @@ public class AuthenticationController {
         this.authenticationService = service;
     }
 
+    /**
+     * The password is checked on the login pool; the servlet thread is released while it runs.
+     */
     @PostMapping("/loginJWT")
-    public ResponseEntity<AuthenticationResponse> authenticate(@RequestBody AuthenticationRequest request) {
-        AuthenticationResponse response = authenticationService.authenticate(request);
-
-        //sending the token in the header and the body
-        return ResponseEntity.ok()
-                .header("Authorization", tokenPrefix + " " + response.getAccessToken())
-                .body(response);
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> authenticate(@RequestBody AuthenticationRequest request,
+                                                                                  HttpServletRequest httpRequest) {
+        return authenticationService.authenticateAsync(request, httpRequest.getRemoteAddr())
+                //sending the token in the header and the body
+                .thenApply(response -> ResponseEntity.ok()
+                        .header("Authorization", tokenPrefix + " " + response.getAccessToken())
+                        .body(response));
     }
 }
@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 
@@ -20,10 +21,21 @@ import java.util.stream.Collectors;
 public class AuthenticationService {
     private final AuthenticationManager authenticationManager;
     private final JwtEncoder jwtEncoder;
+    private final LoginThrottle loginThrottle;
 
-    public AuthenticationService(AuthenticationManager authenticationManager, JwtEncoder jwtEncoder) {
+    public AuthenticationService(AuthenticationManager authenticationManager, JwtEncoder jwtEncoder, LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
         this.jwtEncoder = jwtEncoder;
+        this.loginThrottle = loginThrottle;
+    }
+
+    /**
+     * Authenticates on the {@link LoginThrottle} pool instead of the calling thread.
+     *
+     * @throws cat.tecnocampus.veterinarymanagement.application.exceptions.LoginThrottledException if the attempt is refused
+     */
+    public CompletableFuture<AuthenticationResponse> authenticateAsync(AuthenticationRequest request, String clientAddress) {
+        return loginThrottle.submit(request.username(), clientAddress, () -> authenticate(request));
     }
 
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
@@ -0,0 +1,67 @@
+package cat.tecnocampus.veterinarymanagement.security.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Remembers the tokens already verified by {@code delegate}, so a client sending the same token on every
+ * request pays the signature check and claim parsing once.
+ * <p>
+ * Entries are keyed by the SHA-256 of the token (tokens themselves are not kept) and live for {@code ttl},
+ * never beyond the token's own expiry. Tokens that fail verification are not cached.
+ * Hits and misses are published as {@code cache.gets{cache=jwt}}.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((String key, Jwt jwt) -> lifetime(jwt, ttl)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = sha256(token);
+        Jwt jwt = verified.getIfPresent(key);
+        if (jwt != null) return jwt;
+        jwt = delegate.decode(token);
+        verified.put(key, jwt);
+        return jwt;
+    }
+
+    private static Duration lifetime(Jwt jwt, Duration ttl) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) return ttl;
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        if (remaining.isNegative()) return Duration.ZERO;
+        return remaining.compareTo(ttl) < 0 ? remaining : ttl;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package cat.tecnocampus.veterinarymanagement.security.authentication;
+
+import cat.tecnocampus.veterinarymanagement.application.exceptions.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password verifications on a small dedicated pool, so a burst of logins waits for bcrypt there
+ * instead of taking every servlet thread away from the rest of the API.
+ * <p>
+ * An attempt is refused right away (429) when the same user or the same client address already has
+ * as many attempts in flight as allowed, or when the pool and its queue are full. Login latency, from
+ * submission to outcome, is published as {@code security.login} with its percentiles, and refused
+ * attempts as {@code security.login.rejected} by reason.
+ */
+@Component
+public class LoginThrottle {
+    private final ThreadPoolExecutor verifiers;
+    private final int maxPerUser;
+    private final int maxPerAddress;
+    private final Map<String, Integer> inFlightByUser = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inFlightByAddress = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public LoginThrottle(@Value("${application.security.login.threads:2}") int threads,
+                         @Value("${application.security.login.queue-capacity:100}") int queueCapacity,
+                         @Value("${application.security.login.max-per-user:2}") int maxPerUser,
+                         @Value("${application.security.login.max-per-address:10}") int maxPerAddress,
+                         MeterRegistry meterRegistry) {
+        AtomicInteger count = new AtomicInteger();
+        this.verifiers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "login-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.maxPerUser = maxPerUser;
+        this.maxPerAddress = maxPerAddress;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Schedules {@code verification} of the login of {@code username} from {@code address}.
+     *
+     * @throws LoginThrottledException if the attempt is refused
+     */
+    public <T> CompletableFuture<T> submit(String username, String address, Supplier<T> verification) {
+        String user = username == null ? "" : username.toLowerCase();
+        if (!acquire(inFlightByUser, user, maxPerUser)) {
+            throw rejected("user", "Too many concurrent login attempts for this user");
+        }
+        if (!acquire(inFlightByAddress, address, maxPerAddress)) {
+            release(inFlightByUser, user);
+            throw rejected("address", "Too many concurrent login attempts from this address");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                String outcome = "failure";
+                try {
+                    T result = verification.get();
+                    outcome = "success";
+                    return result;
+                } finally {
+                    release(inFlightByUser, user);
+                    release(inFlightByAddress, address);
+                    sample.stop(loginTimer(outcome));
+                }
+            }, verifiers);
+        } catch (RejectedExecutionException e) {
+            release(inFlightByUser, user);
+            release(inFlightByAddress, address);
+            throw rejected("capacity", "Login service is busy, try again shortly");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        verifiers.shutdownNow();
+    }
+
+    private Timer loginTimer(String outcome) {
+        return Timer.builder("security.login")
+                .description("Time from submitting a login to its outcome, waiting included")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private LoginThrottledException rejected(String reason, String message) {
+        Counter.builder("security.login.rejected")
+                .description("Login attempts refused before verifying the password")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new LoginThrottledException(message);
+    }
+
+    private static boolean acquire(Map<String, Integer> inFlight, String key, int max) {
+        boolean[] acquired = {false};
+        inFlight.compute(key, (k, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= max) return count;
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private static void release(Map<String, Integer> inFlight, String key) {
+        inFlight.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -3,22 +3,118 @@ package cat.tecnocampus.veterinarymanagement.security.authentication;
 import cat.tecnocampus.veterinarymanagement.application.exceptions.PersonDoesNotExistException;
 import cat.tecnocampus.veterinarymanagement.domain.*;
 import cat.tecnocampus.veterinarymanagement.persistence.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+
+/**
+ * Loads the person logging in, by username or email. Loaded persons (with their roles) are cached by the
+ * name used to log in; a person's entries are dropped as soon as a change to that person commits.
+ * Hits and misses are published as {@code cache.gets{cache=personDetails}}.
+ */
 @Service
-public class PersonDetailsService implements UserDetailsService {
+public class PersonDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final PersonRepository personRepository;
+    private final Cache<String, PersonDetails> byLogin;
 
-    public PersonDetailsService(PersonRepository personRepository) {
+    public PersonDetailsService(PersonRepository personRepository,
+                                EntityManagerFactory entityManagerFactory,
+                                MeterRegistry meterRegistry,
+                                @Value("${application.security.person-details.cache.maximum-size:1000}") long maximumSize,
+                                @Value("${application.security.person-details.cache.ttl:PT10M}") Duration ttl) {
         this.personRepository = personRepository;
+        this.byLogin = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byLogin, "personDetails");
+        registerChangeListener(entityManagerFactory);
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws PersonDoesNotExistException {
+        return byLogin.get(username, this::load);
+    }
+
+    /**
+     * Stores the password re-encoded on login by the current encoder (the cached entries of the person are
+     * dropped when the change commits).
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Long personId = ((PersonDetails) user).getPerson().getId();
+        Person person = personRepository.findById(personId)
+                .orElseThrow(() -> new PersonDoesNotExistException("Person with id " + personId + " does not exist"));
+        person.setPassword(newPassword);
+        return new PersonDetails(person);
+    }
+
+    /**
+     * Drops the cached entries of the person, whatever name they were loaded with.
+     */
+    public void evict(Long personId) {
+        byLogin.asMap().values().removeIf(details -> details.getPerson().getId().equals(personId));
+    }
+
+    public void evictAll() {
+        byLogin.invalidateAll();
+    }
+
+    private PersonDetails load(String username) {
         Person person = personRepository.findByUsernameOrEmail(username, username)
                 .orElseThrow(() -> new PersonDoesNotExistException("Person not found with username: " + username));
         return new PersonDetails(person);
     }
-}
\ No newline at end of file
+
+    private void registerChangeListener(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener listener = new ChangeListener();
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    private final class ChangeListener implements PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof Person person) evict(person.getId());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Person person) evict(person.getId());
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return Person.class.isAssignableFrom(persister.getMappedClass());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package cat.tecnocampus.veterinarymanagement.security.authentication;
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,6 +11,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
@@ -20,6 +22,8 @@ import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class SecurityConfigurationBeans {
@@ -28,6 +32,15 @@ public class SecurityConfigurationBeans {
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
 
+    @Value("${application.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${application.security.jwt.cache.maximum-size:10000}")
+    private long jwtCacheMaximumSize;
+
+    @Value("${application.security.jwt.cache.ttl:PT5M}")
+    private Duration jwtCacheTtl;
+
     public SecurityConfigurationBeans(PersonDetailsService personDetailsService) {
         this.personDetailsService = personDetailsService;
     }
@@ -37,21 +50,31 @@ public class SecurityConfigurationBeans {
         var authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(personDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Hashes with an outdated format or a lower strength are replaced on the next successful login
+        authProvider.setUserDetailsPasswordService(personDetailsService);
         return new ProviderManager(authProvider);
     }
 
+    /**
+     * New hashes are stored as {@code {bcrypt}...} with the configured strength. Hashes stored before the
+     * prefix existed are still checked as bcrypt.
+     */
     @Bean
     PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
         SecretKey secretKey = new SecretKeySpec(this.secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        return NimbusJwtDecoder
+        JwtDecoder verifier = NimbusJwtDecoder
                 .withSecretKey(secretKey)
                 .macAlgorithm(MacAlgorithm.HS512)
                 .build();
+        return new CachingJwtDecoder(verifier, jwtCacheMaximumSize, jwtCacheTtl, meterRegistry);
     }
 
     @Bean
@@ -58,6 +58,9 @@ public class SecurityConfigurationAuthorization {
                     // Visit creation - RECEPTIONIST or PET_OWNER
                     auth.requestMatchers(HttpMethod.POST, "/visits").access(hasAnyScope("RECEPTIONIST", "PET_OWNER", "CLINIC_MANAGER"));
 
+                    // Free slot search - whoever can book a visit
+                    auth.requestMatchers(HttpMethod.GET, "/visits/free-slots").access(hasAnyScope("RECEPTIONIST", "PET_OWNER", "CLINIC_MANAGER"));
+
                     // Visit management (GET, PUT, DELETE) - RECEPTIONIST or VETERINARIAN
                     auth.requestMatchers(HttpMethod.GET, "/visits/*").access(hasAnyScope("RECEPTIONIST", "VETERINARIAN", "CLINIC_MANAGER"));
                     auth.requestMatchers(HttpMethod.PUT, "/visits/*").access(hasAnyScope("RECEPTIONIST", "VETERINARIAN", "CLINIC_MANAGER"));
@@ -71,9 +74,17 @@ public class SecurityConfigurationAuthorization {
                                             "/visits/*/owner-not-showed-up"
                     ).access(hasAnyScope("VETERINARIAN", "CLINIC_MANAGER"));
 
+                    // Batch visit transitions - every role of the single-visit transitions; each item is then checked
+                    // against the rule of its action (VisitTransitionPermissions)
+                    auth.requestMatchers(HttpMethod.POST, "/visits/transitions").access(hasAnyScope("RECEPTIONIST", "VETERINARIAN", "PET_OWNER", "CLINIC_MANAGER"));
+
                     // Visit rescheduling and cancellation - RECEPTIONIST, VETERINARIAN or PET_OWNER
                     auth.requestMatchers("/visits/*/reschedule", "/visits/*/cancel").access(hasAnyScope("RECEPTIONIST", "VETERINARIAN", "PET_OWNER", "CLINIC_MANAGER"));
 
+                    // Bulk visit import - CLINIC_MANAGER only; recurring visits - RECEPTIONIST or CLINIC_MANAGER
+                    auth.requestMatchers(HttpMethod.POST, "/visits/import").access(hasScope("CLINIC_MANAGER"));
+                    auth.requestMatchers(HttpMethod.POST, "/visits/recurring").access(hasAnyScope("RECEPTIONIST", "CLINIC_MANAGER"));
+
                     // Walk-in visits - RECEPTIONIST only
                     auth.requestMatchers("/visits/walk-in").access(hasAnyScope("RECEPTIONIST", "CLINIC_MANAGER"));
 
@@ -92,6 +103,12 @@ public class SecurityConfigurationAuthorization {
                     // Invoice management - RECEPTIONIST or CLINIC_MANAGER
                     auth.requestMatchers("/invoices/**").access(hasAnyScope("RECEPTIONIST", "CLINIC_MANAGER"));
 
+                    // Data exports - CLINIC_MANAGER only
+                    auth.requestMatchers("/exports/**").access(hasScope("CLINIC_MANAGER"));
+
+                    // Operational metrics - CLINIC_MANAGER only
+                    auth.requestMatchers("/actuator/metrics/**").access(hasScope("CLINIC_MANAGER"));
+
                     auth.anyRequest().authenticated();
                 })
                 .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
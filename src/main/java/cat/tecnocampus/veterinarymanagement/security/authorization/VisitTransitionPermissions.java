@@ -0,0 +1,33 @@
+package cat.tecnocampus.veterinarymanagement.security.authorization;
+
+import cat.tecnocampus.veterinarymanagement.application.inputDTO.VisitTransitionCommand;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Actions of a batch of visit transitions the caller may apply, following the rules of the single-visit
+ * endpoints: start, complete and no-show are for VETERINARIAN or CLINIC_MANAGER, cancel also for RECEPTIONIST and
+ * PET_OWNER.
+ */
+public final class VisitTransitionPermissions {
+    private static final Set<String> CANCEL_ONLY = Set.of("CANCEL");
+
+    private VisitTransitionPermissions() {
+    }
+
+    public static Set<String> permittedActions(Authentication authentication) {
+        Set<String> authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        if (authorities.contains("SCOPE_VETERINARIAN") || authorities.contains("SCOPE_CLINIC_MANAGER")) {
+            return VisitTransitionCommand.ACTIONS;
+        }
+        if (authorities.contains("SCOPE_RECEPTIONIST") || authorities.contains("SCOPE_PET_OWNER")) {
+            return CANCEL_ONLY;
+        }
+        return Set.of();
+    }
+}
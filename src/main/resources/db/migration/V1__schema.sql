@@ -0,0 +1,306 @@
+-- Schema of the prod profile, matching the JPA mapping (validated on start-up with ddl-auto=validate).
+-- Indexes are in V2.
+
+CREATE TABLE administrator (
+    person_id bigint not null,
+    primary key (person_id)
+);
+
+CREATE TABLE administrator_roles (
+    administrator_id bigint not null,
+    role_id bigint not null,
+    primary key (administrator_id, role_id)
+);
+
+CREATE TABLE availability (
+    id bigint generated by default as identity,
+    day_of_week integer not null,
+    end_time time(6),
+    period_end date,
+    period_start date,
+    start_time time(6),
+    veterinarian_id bigint,
+    primary key (id)
+);
+
+CREATE TABLE availability_exception (
+    id bigint generated by default as identity,
+    day_of_week integer not null,
+    end_time time(6),
+    period_end date,
+    period_start date,
+    start_time time(6),
+    availability_id bigint,
+    reason varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE booking_ledger (
+    id bigint generated by default as identity,
+    booking_date date not null,
+    version bigint,
+    veterinarian_id bigint not null,
+    primary key (id),
+    constraint uk_booking_ledger_veterinarian_date unique (veterinarian_id, booking_date)
+);
+
+CREATE TABLE discount (
+    id bigint generated by default as identity,
+    end_date date,
+    max_uses integer,
+    start_date date,
+    uses_count integer,
+    value_amount float(53),
+    promotion_id bigint,
+    code varchar(255),
+    discount_type enum ('FIXED_AMOUNT','LOYALTY_TIER','PERCENTAGE'),
+    primary key (id)
+);
+
+CREATE TABLE invoice (
+    id bigint generated by default as identity,
+    invoice_date date,
+    total_amount float(53),
+    invoice_id bigint unique,
+    pet_owner_id bigint,
+    visit_id bigint unique,
+    status enum ('PAID','UNPAID'),
+    primary key (id)
+);
+
+CREATE TABLE invoice_item (
+    id bigint generated by default as identity,
+    quantity integer,
+    total_price float(53),
+    unit_price float(53),
+    invoice_id bigint,
+    medication_prescription_id bigint,
+    treatment_id bigint,
+    description varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE low_stock_alert (
+    id bigint generated by default as identity,
+    acknowledged boolean,
+    alert_date date,
+    medication_id bigint unique,
+    primary key (id)
+);
+
+CREATE TABLE loyalty_tier (
+    id bigint generated by default as identity,
+    min_points integer not null,
+    discount_id bigint,
+    benefits varchar(255),
+    description varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE medication (
+    id bigint generated by default as identity,
+    dosage_unit integer,
+    reorder_threshold integer,
+    unit_price float(53),
+    active_ingredient varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE medication_batch (
+    id bigint generated by default as identity,
+    current_quantity integer,
+    expiry_date date,
+    initial_quantity integer,
+    purchase_price_per_unit float(53),
+    received_date date,
+    lot_number bigint,
+    medication_id bigint,
+    primary key (id)
+);
+
+CREATE TABLE medication_incompatibility (
+    id bigint generated by default as identity,
+    persists_until date,
+    medication_a_id bigint not null,
+    medication_b_id bigint not null,
+    description varchar(255),
+    primary key (id),
+    unique (medication_a_id, medication_b_id)
+);
+
+CREATE TABLE medication_prescription (
+    id bigint generated by default as identity,
+    duration_in_days integer,
+    quantity_prescribed integer,
+    medication_id bigint,
+    visit_id bigint,
+    dosage_instructions varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE medication_stock_level (
+    medication_id bigint not null,
+    quantity integer not null,
+    reconciled_at timestamp(6),
+    primary key (medication_id)
+);
+
+CREATE TABLE medication_write_off (
+    id bigint generated by default as identity,
+    expiry_date date,
+    quantity integer,
+    total_cost float(53),
+    unit_cost float(53),
+    written_off_on date not null,
+    batch_id bigint,
+    lot_number bigint,
+    medication_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE payment (
+    id bigint generated by default as identity,
+    amount float(53),
+    payment_date date,
+    invoice_id bigint not null unique,
+    transaction_reference varchar(255),
+    payment_method enum ('BANK_TRANSFER','CASH','CREDIT_CARD','DEBIT_CARD'),
+    primary key (id)
+);
+
+CREATE TABLE person (
+    id bigint generated by default as identity,
+    phone_number integer,
+    address varchar(255),
+    email varchar(255) not null unique,
+    last_name varchar(255),
+    name varchar(255),
+    password varchar(255),
+    username varchar(255) not null unique,
+    primary key (id)
+);
+
+CREATE TABLE pet (
+    id bigint generated by default as identity,
+    date_of_birth date,
+    weight float(53),
+    microchip_number bigint,
+    breed varchar(255),
+    gender varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE pet_owner (
+    person_id bigint not null,
+    primary key (person_id)
+);
+
+CREATE TABLE pet_owner_pet (
+    pet_id bigint not null,
+    pet_owner_id bigint not null
+);
+
+CREATE TABLE prescription_daily_rollup (
+    id bigint generated by default as identity,
+    rollup_date date not null,
+    medication_id bigint not null,
+    prescription_count bigint not null,
+    veterinarian_id bigint,
+    primary key (id),
+    constraint uk_prescription_daily_rollup unique (rollup_date, medication_id, veterinarian_id)
+);
+
+CREATE TABLE promotion (
+    id bigint generated by default as identity,
+    end_date date,
+    start_date date,
+    description varchar(255),
+    discount_code varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+CREATE TABLE role (
+    id bigint generated by default as identity,
+    name enum ('CLINIC_MANAGER','RECEPTIONIST') unique,
+    primary key (id)
+);
+
+CREATE TABLE treatment (
+    id bigint generated by default as identity,
+    cost float(53) not null,
+    description varchar(255),
+    name varchar(255) not null,
+    primary key (id)
+);
+
+CREATE TABLE veterinarian (
+    person_id bigint not null,
+    license_number integer,
+    years_of_experience integer,
+    primary key (person_id)
+);
+
+CREATE TABLE visit (
+    id bigint generated by default as identity,
+    duration integer,
+    pricer_per_fifteen float(53),
+    visit_date date,
+    visit_time time(6),
+    pet_id bigint,
+    pet_owner_id bigint,
+    treatment_id bigint,
+    veterinarian_id bigint,
+    diagnoses text,
+    notes text,
+    reason text,
+    status enum ('CANCELLED','COMPLETED','IN_PROGRESS','NOT_SHOWED_UP','SCHEDULED'),
+    primary key (id)
+);
+
+CREATE TABLE visit_history (
+    id bigint generated by default as identity,
+    new_date date,
+    new_time time(6),
+    old_date date,
+    old_time time(6),
+    created_at timestamp(6),
+    visit_id bigint,
+    action varchar(255),
+    performed_by varchar(255),
+    primary key (id)
+);
+
+ALTER TABLE administrator ADD CONSTRAINT fk_administrator_person FOREIGN KEY (person_id) REFERENCES person (id);
+ALTER TABLE administrator_roles ADD CONSTRAINT fk_administrator_roles_role FOREIGN KEY (role_id) REFERENCES role (id);
+ALTER TABLE administrator_roles ADD CONSTRAINT fk_administrator_roles_administrator FOREIGN KEY (administrator_id) REFERENCES administrator (person_id);
+ALTER TABLE availability ADD CONSTRAINT fk_availability_veterinarian FOREIGN KEY (veterinarian_id) REFERENCES veterinarian (person_id);
+ALTER TABLE availability_exception ADD CONSTRAINT fk_availability_exception_availability FOREIGN KEY (availability_id) REFERENCES availability (id);
+ALTER TABLE booking_ledger ADD CONSTRAINT fk_booking_ledger_veterinarian FOREIGN KEY (veterinarian_id) REFERENCES veterinarian (person_id);
+ALTER TABLE discount ADD CONSTRAINT fk_discount_promotion FOREIGN KEY (promotion_id) REFERENCES promotion (id);
+ALTER TABLE invoice ADD CONSTRAINT fk_invoice_payment FOREIGN KEY (invoice_id) REFERENCES payment (id);
+ALTER TABLE invoice ADD CONSTRAINT fk_invoice_pet_owner FOREIGN KEY (pet_owner_id) REFERENCES pet_owner (person_id);
+ALTER TABLE invoice ADD CONSTRAINT fk_invoice_visit FOREIGN KEY (visit_id) REFERENCES visit (id);
+ALTER TABLE invoice_item ADD CONSTRAINT fk_invoice_item_invoice FOREIGN KEY (invoice_id) REFERENCES invoice (id);
+ALTER TABLE invoice_item ADD CONSTRAINT fk_invoice_item_medication_prescription FOREIGN KEY (medication_prescription_id) REFERENCES medication_prescription (id);
+ALTER TABLE invoice_item ADD CONSTRAINT fk_invoice_item_treatment FOREIGN KEY (treatment_id) REFERENCES treatment (id);
+ALTER TABLE low_stock_alert ADD CONSTRAINT fk_low_stock_alert_medication FOREIGN KEY (medication_id) REFERENCES medication (id);
+ALTER TABLE loyalty_tier ADD CONSTRAINT fk_loyalty_tier_discount FOREIGN KEY (discount_id) REFERENCES discount (id);
+ALTER TABLE medication_batch ADD CONSTRAINT fk_medication_batch_medication FOREIGN KEY (medication_id) REFERENCES medication (id);
+ALTER TABLE medication_incompatibility ADD CONSTRAINT fk_medication_incompatibility_medication_a FOREIGN KEY (medication_a_id) REFERENCES medication (id);
+ALTER TABLE medication_incompatibility ADD CONSTRAINT fk_medication_incompatibility_medication_b FOREIGN KEY (medication_b_id) REFERENCES medication (id);
+ALTER TABLE medication_prescription ADD CONSTRAINT fk_medication_prescription_medication FOREIGN KEY (medication_id) REFERENCES medication (id);
+ALTER TABLE medication_prescription ADD CONSTRAINT fk_medication_prescription_visit FOREIGN KEY (visit_id) REFERENCES visit (id);
+ALTER TABLE medication_write_off ADD CONSTRAINT fk_medication_write_off_medication FOREIGN KEY (medication_id) REFERENCES medication (id);
+ALTER TABLE payment ADD CONSTRAINT fk_payment_invoice FOREIGN KEY (invoice_id) REFERENCES invoice (id);
+ALTER TABLE pet_owner ADD CONSTRAINT fk_pet_owner_person FOREIGN KEY (person_id) REFERENCES person (id);
+ALTER TABLE pet_owner_pet ADD CONSTRAINT fk_pet_owner_pet_pet FOREIGN KEY (pet_id) REFERENCES pet (id);
+ALTER TABLE pet_owner_pet ADD CONSTRAINT fk_pet_owner_pet_pet_owner FOREIGN KEY (pet_owner_id) REFERENCES pet_owner (person_id);
+ALTER TABLE veterinarian ADD CONSTRAINT fk_veterinarian_person FOREIGN KEY (person_id) REFERENCES person (id);
+ALTER TABLE visit ADD CONSTRAINT fk_visit_pet FOREIGN KEY (pet_id) REFERENCES pet (id);
+ALTER TABLE visit ADD CONSTRAINT fk_visit_pet_owner FOREIGN KEY (pet_owner_id) REFERENCES pet_owner (person_id);
+ALTER TABLE visit ADD CONSTRAINT fk_visit_treatment FOREIGN KEY (treatment_id) REFERENCES treatment (id);
+ALTER TABLE visit ADD CONSTRAINT fk_visit_veterinarian FOREIGN KEY (veterinarian_id) REFERENCES veterinarian (person_id);
@@ -0,0 +1,23 @@
+-- Composite indexes of the hot predicates, the same ones declared on the entities.
+
+-- schedules, slot index and demand report: visits of a veterinarian by day
+CREATE INDEX idx_visit_veterinarian_date ON visit (veterinarian_id, visit_date);
+-- pet history
+CREATE INDEX idx_visit_pet_date ON visit (pet_id, visit_date);
+-- keyset pagination and exports of visits
+CREATE INDEX idx_visit_date_time_id ON visit (visit_date, visit_time, id);
+
+-- stock deduction (earliest expiring batches of a medication first)
+CREATE INDEX idx_medication_batch_medication_expiry ON medication_batch (medication_id, expiry_date);
+-- expiry sweep
+CREATE INDEX idx_medication_batch_expiry_quantity ON medication_batch (expiry_date, current_quantity);
+CREATE INDEX idx_write_off_date ON medication_write_off (written_off_on);
+
+-- invoice exports and billing reports by date and status
+CREATE INDEX idx_invoice_date ON invoice (invoice_date, id);
+CREATE INDEX idx_invoice_date_status ON invoice (invoice_date, status);
+
+-- weekly availability of a veterinarian
+CREATE INDEX idx_availability_veterinarian_day ON availability (veterinarian_id, day_of_week);
+
+CREATE INDEX idx_prescription_daily_rollup_medication ON prescription_daily_rollup (medication_id, rollup_date);
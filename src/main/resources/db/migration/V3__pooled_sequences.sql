@@ -0,0 +1,23 @@
+-- High-volume tables take their ids from sequences (pooled-lo, 50 ids per call) so their inserts can be batched.
+-- Each sequence starts after the rows already in its table.
+
+CREATE SEQUENCE visit_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE visit_history_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE invoice_item_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE medication_prescription_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE medication_batch_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE payment_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE visit ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE visit_history ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE invoice_item ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE medication_prescription ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE medication_batch ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE payment ALTER COLUMN id DROP IDENTITY;
+
+ALTER SEQUENCE visit_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM visit);
+ALTER SEQUENCE visit_history_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM visit_history);
+ALTER SEQUENCE invoice_item_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM invoice_item);
+ALTER SEQUENCE medication_prescription_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM medication_prescription);
+ALTER SEQUENCE medication_batch_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM medication_batch);
+ALTER SEQUENCE payment_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM payment);
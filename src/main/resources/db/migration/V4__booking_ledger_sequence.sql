@@ -0,0 +1,7 @@
+-- Recurring bookings create one ledger row per day: take their ids from a pooled sequence so they are batched too.
+
+CREATE SEQUENCE booking_ledger_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE booking_ledger ALTER COLUMN id DROP IDENTITY;
+
+ALTER SEQUENCE booking_ledger_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM booking_ledger);
@@ -0,0 +1,2 @@
+-- no-show detection: scheduled visits by date and time
+CREATE INDEX idx_visit_status_date_time ON visit (status, visit_date, visit_time);
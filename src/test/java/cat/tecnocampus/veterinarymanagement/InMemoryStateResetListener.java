@@ -0,0 +1,46 @@
+package cat.tecnocampus.veterinarymanagement;
+
+import cat.tecnocampus.veterinarymanagement.application.IncompatibilityGraph;
+import cat.tecnocampus.veterinarymanagement.application.LowStockAlertWorker;
+import cat.tecnocampus.veterinarymanagement.application.SlotAvailabilityIndex;
+import cat.tecnocampus.veterinarymanagement.security.authentication.PersonDetailsService;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+import java.time.Duration;
+
+/**
+ * Service tests reset the database with plain SQL scripts before every test, behind the back of the
+ * in-memory structures kept by the application. This listener empties them so each test starts cold,
+ * and lets background work triggered by a test finish before the next test resets the data.
+ */
+public class InMemoryStateResetListener implements TestExecutionListener, Ordered {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        if (!testContext.hasApplicationContext()) return;
+        ApplicationContext context = testContext.getApplicationContext();
+        context.getBeanProvider(SlotAvailabilityIndex.class).ifAvailable(SlotAvailabilityIndex::clear);
+        context.getBeanProvider(IncompatibilityGraph.class).ifAvailable(IncompatibilityGraph::invalidate);
+        context.getBeanProvider(CacheManager.class).ifAvailable(caches ->
+                caches.getCacheNames().forEach(name -> caches.getCache(name).clear()));
+        context.getBeanProvider(PersonDetailsService.class).ifAvailable(PersonDetailsService::evictAll);
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) throws Exception {
+        if (!testContext.hasApplicationContext()) return;
+        LowStockAlertWorker worker = testContext.getApplicationContext().getBeanProvider(LowStockAlertWorker.class).getIfAvailable();
+        if (worker != null && !worker.awaitIdle(Duration.ofSeconds(10))) {
+            throw new IllegalStateException("Low stock alert worker did not finish in time");
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -1,6 +1,8 @@
 package cat.tecnocampus.veterinarymanagement;
 
 import cat.tecnocampus.veterinarymanagement.domain.VisitsDomainTests;
+import cat.tecnocampus.veterinarymanagement.persistence.ConcurrencyLimitedDataSourceTest;
+import cat.tecnocampus.veterinarymanagement.security.authentication.AuthenticationServiceTest;
 import cat.tecnocampus.veterinarymanagement.service.*;
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
@@ -16,6 +18,8 @@ import org.junit.platform.suite.api.Suite;
         MedicationsServiceTest.class,
         PromotionsServiceTest.class,
         VisitsServiceTest.class,
+        AuthenticationServiceTest.class,
+        ConcurrencyLimitedDataSourceTest.class,
         VisitsDomainTests.class
 })
 class VeterinaryManagementApplicationTests {
@@ -76,4 +76,37 @@ public class VisitsDomainTests {
         visit.unassignTreatment();
         assertNull(visit.getTreatment());
     }
+
+    @Test
+    void daySlotsMergeAvailabilityExceptionsAndBookings() {
+        DaySlots slots = new DaySlots();
+        slots.open(LocalTime.of(9, 0), LocalTime.of(12, 0));
+        slots.close(LocalTime.of(10, 0), LocalTime.of(10, 30));
+        slots.book(1L, LocalTime.of(11, 0), 30);
+
+        assertTrue(slots.isFree(LocalTime.of(9, 0), 60, null));
+        assertFalse(slots.isFree(LocalTime.of(9, 45), 30, null));
+        assertFalse(slots.isFree(LocalTime.of(11, 15), 15, null));
+        assertTrue(slots.isFree(LocalTime.of(11, 15), 15, 1L));
+        assertFalse(slots.isOpen(LocalTime.of(11, 45), 30));
+        assertEquals(LocalTime.of(10, 30), slots.firstFreeSlot(LocalTime.of(9, 45), 30).orElseThrow());
+        assertTrue(slots.firstFreeSlot(LocalTime.of(10, 30), 45).isEmpty());
+    }
+
+    @Test
+    void daySlotsReleaseKeepsOtherOverlappingBookings() {
+        DaySlots slots = new DaySlots();
+        slots.open(LocalTime.of(0, 0), LocalTime.of(23, 59));
+        slots.book(1L, LocalTime.of(1, 0), 90);
+        slots.book(2L, LocalTime.of(2, 0), 30);
+
+        slots.release(1L);
+
+        assertTrue(slots.isFree(LocalTime.of(1, 0), 60, null));
+        assertFalse(slots.isFree(LocalTime.of(2, 15), 5, null));
+
+        slots.book(2L, LocalTime.of(23, 0), 30);
+        assertTrue(slots.isFree(LocalTime.of(2, 0), 30, null));
+        assertFalse(slots.isFree(LocalTime.of(22, 45), 30, null));
+    }
 }
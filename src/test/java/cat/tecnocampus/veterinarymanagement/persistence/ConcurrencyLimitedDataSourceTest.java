@@ -0,0 +1,31 @@
+package cat.tecnocampus.veterinarymanagement.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitedDataSourceTest {
+
+    @Test
+    public void connectionsBeyondTheLimitWaitForOneToBeClosedTest() throws Exception {
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:limiter"), 1, Duration.ofMillis(100));
+
+        Connection first = limited.getConnection();
+        assertEquals(0, limited.availablePermits());
+        assertThrows(SQLTransientConnectionException.class, limited::getConnection);
+
+        first.close();
+        first.close();
+        assertEquals(1, limited.availablePermits());
+        try (Connection second = limited.getConnection()) {
+            assertTrue(second.isValid(1));
+        }
+        assertEquals(1, limited.availablePermits());
+    }
+}
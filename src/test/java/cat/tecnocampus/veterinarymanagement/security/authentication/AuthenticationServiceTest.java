@@ -0,0 +1,113 @@
+package cat.tecnocampus.veterinarymanagement.security.authentication;
+
+import cat.tecnocampus.veterinarymanagement.application.exceptions.LoginThrottledException;
+import cat.tecnocampus.veterinarymanagement.domain.Person;
+import cat.tecnocampus.veterinarymanagement.persistence.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Sql(scripts = "classpath:cleanup-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "classpath:data-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class AuthenticationServiceTest {
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private PersonDetailsService personDetailsService;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private JwtDecoder jwtDecoder;
+    @Autowired
+    private LoginThrottle loginThrottle;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void loginDetailsAreCachedUntilThePersonChangesTest() {
+        UserDetails first = personDetailsService.loadUserByUsername("alice");
+        assertSame(first, personDetailsService.loadUserByUsername("alice"));
+
+        Person alice = personRepository.findByUsernameOrEmail("alice", "alice").orElseThrow();
+        alice.setPassword("changed");
+        personRepository.save(alice);
+
+        UserDetails reloaded = personDetailsService.loadUserByUsername("alice");
+        assertNotSame(first, reloaded);
+        assertEquals("changed", reloaded.getPassword());
+    }
+
+    @Test
+    public void verifiedTokensAreCachedAndForgedOnesRejectedTest() {
+        UserDetails alice = personDetailsService.loadUserByUsername("alice");
+        String token = authenticationService.generateToken(
+                new UsernamePasswordAuthenticationToken(alice, null, alice.getAuthorities()));
+
+        assertSame(jwtDecoder.decode(token), jwtDecoder.decode(token));
+
+        String forged = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        assertThrows(JwtException.class, () -> jwtDecoder.decode(forged));
+    }
+
+    @Test
+    public void loginRehashesPasswordsStoredWithAnOutdatedEncodingTest() throws Exception {
+        Person alice = personRepository.findByUsernameOrEmail("alice", "alice").orElseThrow();
+        alice.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        personRepository.save(alice);
+        long logins = successfulLogins();
+
+        authenticationService.authenticateAsync(new AuthenticationRequest("alice", "secret"), "127.0.0.1")
+                .get(10, TimeUnit.SECONDS);
+
+        String stored = personRepository.findByUsernameOrEmail("alice", "alice").orElseThrow().getPassword();
+        assertTrue(stored.startsWith("{bcrypt}$2a$10$"));
+        assertEquals(logins + 1, successfulLogins());
+        // The upgraded hash still verifies
+        assertNotNull(authenticationService.authenticate(new AuthenticationRequest("alice", "secret")).getAccessToken());
+    }
+
+    @Test
+    public void concurrentLoginsOfTheSameUserAreLimitedTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> inFlight = List.of(
+                loginThrottle.submit("bob", "10.0.0.1", () -> awaitQuietly(release)),
+                loginThrottle.submit("BOB", "10.0.0.2", () -> awaitQuietly(release)));
+        double rejected = meterRegistry.counter("security.login.rejected", "reason", "user").count();
+
+        assertThrows(LoginThrottledException.class, () -> loginThrottle.submit("bob", "10.0.0.3", () -> true));
+        assertEquals(rejected + 1, meterRegistry.counter("security.login.rejected", "reason", "user").count());
+
+        release.countDown();
+        for (CompletableFuture<Boolean> login : inFlight) login.get(10, TimeUnit.SECONDS);
+        assertTrue(loginThrottle.submit("bob", "10.0.0.3", () -> true).get(10, TimeUnit.SECONDS));
+    }
+
+    private long successfulLogins() {
+        var timer = meterRegistry.find("security.login").tag("outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package cat.tecnocampus.veterinarymanagement.service;
 
+import cat.tecnocampus.veterinarymanagement.application.LowStockAlertWorker;
+import cat.tecnocampus.veterinarymanagement.application.MedicationStockChangedEvent;
+import cat.tecnocampus.veterinarymanagement.application.MedicationStockLevelService;
 import cat.tecnocampus.veterinarymanagement.application.MedicationsService;
 import cat.tecnocampus.veterinarymanagement.application.VisitsService;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.MedicationBatchCommand;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.MedicationPrescriptionCommand;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationBatchInformation;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationStockInformation;
+import cat.tecnocampus.veterinarymanagement.application.outputDTO.MedicationWriteOffReportInformation;
 import cat.tecnocampus.veterinarymanagement.application.exceptions.*;
 import cat.tecnocampus.veterinarymanagement.domain.LowStockAlert;
 import cat.tecnocampus.veterinarymanagement.domain.Medication;
@@ -15,16 +20,27 @@ import cat.tecnocampus.veterinarymanagement.persistence.LowStockAlertRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.MedicationBatchRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.MedicationIncompatibilityRepository;
 import cat.tecnocampus.veterinarymanagement.persistence.MedicationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +60,16 @@ public class MedicationsServiceTest {
     private MedicationIncompatibilityRepository medicationIncompatibilityRepository;
     @Autowired
     private VisitsService visitsService;
+    @Autowired
+    private MedicationStockLevelService medicationStockLevelService;
+    @Autowired
+    private LowStockAlertWorker lowStockAlertWorker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
 
     // ========== getMedicationById Tests ==========
 
@@ -323,6 +349,26 @@ public class MedicationsServiceTest {
         });
     }
 
+    @Test
+    public void importMedicationBatchesCreatesAllOfThemAndAdjustsTheStockOnceTest() {
+        List<Long> ids = medicationsService.importMedicationBatches(1L, List.of(
+                new MedicationBatchCommand(7001L, "2025-01-01", "2026-12-31", 40, 40, 5.0),
+                new MedicationBatchCommand(7002L, "2025-01-01", "2027-01-31", 60, 60, 5.0),
+                new MedicationBatchCommand(7003L, "2025-01-01", "2027-02-28", 10, 10, 5.0)));
+
+        assertEquals(3, ids.stream().distinct().count());
+        assertEquals(4, medicationsService.getMedicationBatches(1L).size());
+        assertEquals(310, medicationsService.getMedicationStock(1L).quantity());
+        assertEquals(7002L, medicationsService.getMedicationBatchById(ids.get(1)).orElseThrow().lot_number());
+    }
+
+    @Test
+    public void importMedicationBatchesOfUnknownMedicationTest() {
+        assertThrows(MedicationDoesNotExistException.class, () -> medicationsService.importMedicationBatches(999L,
+                List.of(new MedicationBatchCommand(7001L, "2025-01-01", "2026-12-31", 40, 40, 5.0))));
+        assertThrows(IllegalArgumentException.class, () -> medicationsService.importMedicationBatches(1L, List.of()));
+    }
+
     // ========== updateMedicationStock (UC 2.8) Tests ==========
 
     @Test
@@ -376,6 +422,69 @@ public class MedicationsServiceTest {
         assertEquals(5, totalAfter);
     }
 
+    @Test
+    public void updateMedicationStockTakesFirstExpiredFirstTest() {
+        LocalDate today = LocalDate.now();
+        Long idLate = medicationsService.createMedicationBatch(1L, new MedicationBatchCommand(90002L,
+                today.toString(), today.plusDays(20).toString(), 50, 50, 1.0));
+        Long idSoon = medicationsService.createMedicationBatch(1L, new MedicationBatchCommand(90001L,
+                today.toString(), today.plusDays(10).toString(), 30, 30, 1.0));
+        Long idExpired = medicationsService.createMedicationBatch(1L, new MedicationBatchCommand(90003L,
+                today.minusDays(40).toString(), today.minusDays(1).toString(), 40, 40, 1.0));
+
+        medicationsService.updateMedicationStock(1L, 70);
+
+        assertTrue(medicationBatchRepository.findById(idSoon).isEmpty());
+        assertEquals(10, medicationBatchRepository.findById(idLate).orElseThrow().getCurrentQuantity());
+        assertEquals(40, medicationBatchRepository.findById(idExpired).orElseThrow().getCurrentQuantity());
+        // The data-test.sql batch (expiring later) is untouched: 200 + 10 + 40
+        assertEquals(250, medicationBatchRepository.sumCurrentQuantityByMedication(1L));
+    }
+
+    @Test
+    public void stockChangesKeepTheCallersEntitiesManagedTest() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Medication medication = medicationRepository.findById(1L).orElseThrow();
+
+            medicationsService.updateMedicationStock(1L, 30);
+
+            assertTrue(entityManager.contains(medication));
+            assertEquals(170, medicationStockLevelService.quantity(1L));
+        });
+    }
+
+    @Test
+    public void updateMedicationStockConcurrentDeductionsNeverOversellTest() throws Exception {
+        // Medication 1 has a single batch of 200 units: only 6 deductions of 30 fit
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        medicationsService.updateMedicationStock(1L, 30);
+                        return true;
+                    } catch (NotEnoughMedicationInBatchesException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            long succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) succeeded++;
+            }
+
+            assertEquals(6, succeeded);
+            assertEquals(20, medicationBatchRepository.sumCurrentQuantityByMedication(1L));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     public void updateMedicationStockInvalidQuantityTest() {
         Long medId = medicationRepository.findAll().getFirst().getId();
@@ -383,6 +492,214 @@ public class MedicationsServiceTest {
         assertThrows(IllegalArgumentException.class, () -> medicationsService.updateMedicationStock(medId, -5));
     }
 
+    // ========== Medication stock level Tests ==========
+
+    @Test
+    public void medicationStockFollowsEveryBatchChangeTest() {
+        assertEquals(200, medicationsService.getMedicationStock(1L).quantity());
+
+        Long id = medicationsService.createMedicationBatch(1L, new MedicationBatchCommand(3003L, "2026-01-01", "2027-06-30", 50, 50, 5.0));
+        assertEquals(250, medicationsService.getMedicationStock(1L).quantity());
+
+        medicationsService.updateMedicationBatch(id, new MedicationBatchCommand(3003L, "2026-01-01", "2027-06-30", 50, 20, 5.0));
+        assertEquals(220, medicationsService.getMedicationStock(1L).quantity());
+
+        medicationsService.updateMedicationStock(1L, 30);
+        assertEquals(190, medicationsService.getMedicationStock(1L).quantity());
+
+        medicationsService.deleteMedicationBatch(id);
+        MedicationStockInformation stock = medicationsService.getMedicationStock(1L);
+        assertEquals(170, stock.quantity());
+        assertEquals(100, stock.reorder_threshold());
+        assertFalse(stock.low_stock());
+        assertEquals(170, medicationBatchRepository.sumCurrentQuantityByMedication(1L));
+    }
+
+    @Test
+    public void medicationStockOfMedicationWithoutBatchesTest() {
+        medicationBatchRepository.deleteById(4L);
+        MedicationStockInformation stock = medicationsService.getMedicationStock(4L);
+        assertEquals(0, stock.quantity());
+        assertTrue(stock.low_stock());
+    }
+
+    @Test
+    public void medicationStockNonExistingMedicationTest() {
+        assertThrows(MedicationDoesNotExistException.class, () -> medicationsService.getMedicationStock(999L));
+    }
+
+    @Test
+    public void reconcileAllFixesDriftedStockLevelsTest() {
+        medicationsService.getMedicationStock(1L);
+        medicationsService.getMedicationStock(2L);
+        assertEquals(0, medicationStockLevelService.reconcileAll());
+
+        // Written behind the application's back
+        MedicationBatch batch = medicationBatchRepository.findById(1L).orElseThrow();
+        batch.setCurrentQuantity(120);
+        medicationBatchRepository.save(batch);
+
+        assertEquals(1, medicationStockLevelService.reconcileAll());
+        assertEquals(120, medicationsService.getMedicationStock(1L).quantity());
+        assertEquals(150, medicationsService.getMedicationStock(2L).quantity());
+    }
+
+    @Test
+    public void concurrentFirstStockChangesOfAMedicationAreAllCountedTest() throws Exception {
+        // Medication 2 has a single batch of 150 units and no stock level row yet
+        LocalDate today = LocalDate.now();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                long lot = 95000L + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return medicationsService.createMedicationBatch(2L, new MedicationBatchCommand(lot,
+                            today.toString(), today.plusDays(30).toString(), 10, 10, 1.0));
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) result.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(230, medicationStockLevelService.quantity(2L));
+        assertEquals(0, medicationStockLevelService.reconcileAll());
+    }
+
+    @Test
+    public void reconcileAllKeepsTheStockChangesCommittedWhileItRunsTest() throws Exception {
+        assertEquals(150, medicationsService.getMedicationStock(2L).quantity());
+        LocalDate today = LocalDate.now();
+        CountDownLatch added = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> change = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                medicationsService.createMedicationBatch(2L, new MedicationBatchCommand(96000L,
+                        today.toString(), today.plusDays(30).toString(), 10, 10, 1.0));
+                added.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(added.await(10, TimeUnit.SECONDS));
+            Future<Integer> reconciliation = pool.submit(() -> medicationStockLevelService.reconcileAll());
+            Thread.sleep(200);
+            commit.countDown();
+            change.get(10, TimeUnit.SECONDS);
+            assertEquals(0, reconciliation.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(160, medicationStockLevelService.quantity(2L));
+    }
+
+    // ========== Expired batch write-off Tests ==========
+
+    @Test
+    public void writeOffExpiredBatchesRetiresThemIntoTheLedgerTest() {
+        assertEquals(5, medicationsService.getMedicationStock(4L).quantity());
+
+        // Batches 3 (100 x 3.00, expired 2025-12-31) and 4 (5 x 10.00, expired 2026-01-01)
+        assertEquals(2, medicationsService.writeOffExpiredBatches(LocalDate.parse("2026-01-01")));
+
+        assertTrue(medicationBatchRepository.findById(3L).isEmpty());
+        assertTrue(medicationBatchRepository.findById(4L).isEmpty());
+        assertTrue(medicationBatchRepository.findById(5L).isPresent());
+        assertEquals(0, medicationsService.getMedicationStock(4L).quantity());
+
+        List<MedicationWriteOffReportInformation> report = medicationsService.getWriteOffReport(
+                LocalDate.parse("2026-01-01"), LocalDate.parse("2026-01-31"));
+        assertEquals(List.of(3L, 4L), report.stream().map(MedicationWriteOffReportInformation::medication_id).toList());
+        assertEquals(100L, report.get(0).quantity());
+        assertEquals(300.0, report.get(0).total_cost(), 0.001);
+        assertEquals(50.0, report.get(1).total_cost(), 0.001);
+
+        // Already retired: the next sweep finds nothing new
+        assertEquals(0, medicationsService.writeOffExpiredBatches(LocalDate.parse("2026-01-01")));
+        assertTrue(medicationsService.getWriteOffReport(LocalDate.parse("2026-02-01"), LocalDate.parse("2026-02-28")).isEmpty());
+    }
+
+    @Test
+    public void getExpiringBatchesTest() {
+        LocalDate today = LocalDate.now();
+        Long soon = medicationsService.createMedicationBatch(2L, new MedicationBatchCommand(5005L,
+                today.toString(), today.plusDays(5).toString(), 10, 10, 1.0));
+        medicationsService.createMedicationBatch(2L, new MedicationBatchCommand(5006L,
+                today.toString(), today.plusDays(5).toString(), 10, 0, 1.0));
+
+        assertEquals(List.of(soon), medicationsService.getExpiringBatches(7).stream().map(MedicationBatchInformation::batch_id).toList());
+        assertTrue(medicationsService.getExpiringBatches(4).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> medicationsService.getExpiringBatches(-1));
+        assertThrows(IllegalArgumentException.class, () -> medicationsService.getExpiringBatches(366));
+    }
+
+    // ========== Asynchronous low stock alert Tests ==========
+
+    @Test
+    public void stockDeductionRaisesLowStockAlertAfterCommitTest() throws Exception {
+        Medication med1 = medicationRepository.findById(1L).orElseThrow();
+
+        medicationsService.updateMedicationStock(1L, 150);
+        assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+        assertEquals(1, lowStockAlertRepository.findByMedication(med1).size());
+
+        medicationsService.createMedicationBatch(1L, new MedicationBatchCommand(4004L, "2026-01-01", "2027-06-30", 100, 100, 5.0));
+        assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+        assertTrue(lowStockAlertRepository.findByMedication(med1).isEmpty());
+    }
+
+    @Test
+    public void failedStockDeductionPublishesNoEventTest() throws Exception {
+        double queued = meterRegistry.counter("medication.low-stock.events", "result", "queued").count();
+
+        assertThrows(NotEnoughMedicationInBatchesException.class, () -> medicationsService.updateMedicationStock(1L, 500));
+        assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+
+        assertEquals(queued, meterRegistry.counter("medication.low-stock.events", "result", "queued").count());
+    }
+
+    @Test
+    public void burstOfStockChangesIsCoalescedTest() throws Exception {
+        double queued = meterRegistry.counter("medication.low-stock.events", "result", "queued").count();
+        double coalesced = meterRegistry.counter("medication.low-stock.events", "result", "coalesced").count();
+
+        // Published outside a transaction, so delivered immediately, faster than the worker evaluates them
+        for (int i = 0; i < 200; i++) {
+            lowStockAlertWorker.onStockChanged(new MedicationStockChangedEvent(4L));
+        }
+        assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+
+        double evaluations = meterRegistry.counter("medication.low-stock.events", "result", "queued").count() - queued;
+        assertEquals(200, evaluations + meterRegistry.counter("medication.low-stock.events", "result", "coalesced").count() - coalesced);
+        assertTrue(evaluations < 200);
+        assertEquals(1, lowStockAlertRepository.findByMedication(medicationRepository.findById(4L).orElseThrow()).size());
+        assertEquals(0.0, meterRegistry.get("medication.low-stock.queue.depth").gauge().value());
+    }
+
+    @Test
+    public void sweepRecoversTheAlertsOfDroppedStockChangesTest() throws Exception {
+        Medication med1 = medicationRepository.findById(1L).orElseThrow();
+        medicationsService.updateMedicationStock(1L, 150);
+        assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+        // As if the evaluation of the change had been dropped
+        lowStockAlertRepository.deleteAll();
+        double recovered = meterRegistry.counter("medication.low-stock.recovered").count();
+
+        assertEquals(1, lowStockAlertWorker.sweep());
+
+        assertEquals(1, lowStockAlertRepository.findByMedication(med1).size());
+        assertEquals(recovered + 1, meterRegistry.counter("medication.low-stock.recovered").count());
+        assertEquals(0, lowStockAlertWorker.sweep());
+    }
+
     // ========== Low Stock Alert tests (moved from LowStockAlertServiceTest) ==========
 
     @Test
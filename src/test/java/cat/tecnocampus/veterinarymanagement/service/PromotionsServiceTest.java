@@ -325,6 +325,20 @@ public class PromotionsServiceTest {
         assertEquals(0, discountRepository.findByPromotion(promotion).size());
     }
 
+    @Test
+    public void cachedDiscountIsInvalidatedWhenUpdatedOrDeletedTest() {
+        Long promoId = ensurePromotionExists();
+        Long id = promotionsService.createDiscount(promoId,
+                new DiscountCommand("CACHE1", "PERCENTAGE", 5.0, "2025-10-01", "2025-10-31", 10, 0));
+        assertEquals("CACHE1", promotionsService.getDiscountById(id).orElseThrow().code());
+
+        promotionsService.updateDiscount(id, new DiscountCommand("CACHE2", "PERCENTAGE", 5.0, "2025-10-01", "2025-10-31", 10, 0));
+        assertEquals("CACHE2", promotionsService.getDiscountById(id).orElseThrow().code());
+
+        promotionsService.deleteDiscounts(promoId);
+        assertTrue(promotionsService.getDiscountById(id).isEmpty());
+    }
+
     @Test
     public void deleteDiscountsNonExistingPromotionTest() {
         Exception exception = assertThrows(PromotionDoesNotExistException.class, () -> {
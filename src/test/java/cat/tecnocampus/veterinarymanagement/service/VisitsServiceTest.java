@@ -1,22 +1,70 @@
 package cat.tecnocampus.veterinarymanagement.service;
 
+import cat.tecnocampus.veterinarymanagement.application.CsvWriter;
+import cat.tecnocampus.veterinarymanagement.application.ExportsService;
+import cat.tecnocampus.veterinarymanagement.application.IncompatibilityGraph;
+import cat.tecnocampus.veterinarymanagement.application.LowStockAlertWorker;
+import cat.tecnocampus.veterinarymanagement.application.NoShowDetectionJob;
+import cat.tecnocampus.veterinarymanagement.application.PrescriptionRollupService;
+import cat.tecnocampus.veterinarymanagement.application.SlotAvailabilityIndex;
+import cat.tecnocampus.veterinarymanagement.application.VeterinariansService;
 import cat.tecnocampus.veterinarymanagement.application.VisitsService;
+import cat.tecnocampus.veterinarymanagement.application.WalkInAssignmentEngine;
+import cat.tecnocampus.veterinarymanagement.application.WalkInAssignmentEngine.Policy;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationIncompatibility;
+import cat.tecnocampus.veterinarymanagement.domain.MedicationPrescription;
+import cat.tecnocampus.veterinarymanagement.domain.RecurrenceRule;
+import cat.tecnocampus.veterinarymanagement.domain.Veterinarian;
+import cat.tecnocampus.veterinarymanagement.domain.Visit;
 import cat.tecnocampus.veterinarymanagement.application.inputDTO.*;
 import cat.tecnocampus.veterinarymanagement.application.outputDTO.*;
 import cat.tecnocampus.veterinarymanagement.application.exceptions.*;
 import cat.tecnocampus.veterinarymanagement.domain.VisitStatus;
 import cat.tecnocampus.veterinarymanagement.domain.exceptions.VisitStatusInvalidException;
 import cat.tecnocampus.veterinarymanagement.persistence.*;
+import cat.tecnocampus.veterinarymanagement.security.authorization.VisitTransitionPermissions;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.StringWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +76,79 @@ public class VisitsServiceTest {
     @Autowired
     private VisitsService visitsService;
 
+    @Autowired
+    private VeterinariansService veterinariansService;
+
+    @Autowired
+    private SlotAvailabilityIndex slotAvailabilityIndex;
+
+    @Autowired
+    private WalkInAssignmentEngine walkInAssignmentEngine;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MedicationIncompatibilityRepository medicationIncompatibilityRepository;
+
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Autowired
+    private IncompatibilityGraph incompatibilityGraph;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LowStockAlertWorker lowStockAlertWorker;
+
+    @Autowired
+    private PrescriptionRollupService prescriptionRollupService;
+
+    @Autowired
+    private PrescriptionDailyRollupRepository prescriptionDailyRollupRepository;
+
+    @Autowired
+    private ExportsService exportsService;
+
+    @Autowired
+    private VisitHistoryRepository visitHistoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private Statistics measure(Runnable action) {
+        // Statistics are global: let the background low stock evaluations of earlier calls finish first
+        try {
+            assertTrue(lowStockAlertWorker.awaitIdle(Duration.ofSeconds(5)));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            action.run();
+            return statistics;
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private long countStatements(Runnable action) {
+        return measure(action).getPrepareStatementCount();
+    }
+
     // ========== getVisitById Tests ==========
 
     @Test
@@ -44,13 +165,86 @@ public class VisitsServiceTest {
         assertThrows(VisitDoesNotExistException.class, () -> visitsService.getVisitById(999L));
     }
 
-    // ========== getAllVisits Tests ==========
+    // ========== searchVisits / streamVisits Tests ==========
+
+    private static final VisitSearchCommand NO_FILTER = new VisitSearchCommand(null, null, null, null, null, null);
+
+    private int countVisits() {
+        return visitsService.searchVisits(NO_FILTER, null, 500).visits().size();
+    }
+
+    @Test
+    public void searchVisitsListsAllVisitsInOnePageTest() {
+        VisitPageInformation page = visitsService.searchVisits(NO_FILTER, null, 50);
+        assertEquals(3, page.visits().size());
+        assertNull(page.next_cursor());
+    }
+
+    @Test
+    public void searchVisitsWalksAllPagesWithCursorTest() {
+        VisitPageInformation first = visitsService.searchVisits(NO_FILTER, null, 2);
+        assertEquals(List.of(1L, 2L), first.visits().stream().map(VisitInformation::visit_id).toList());
+        assertNotNull(first.next_cursor());
+
+        VisitPageInformation second = visitsService.searchVisits(NO_FILTER, first.next_cursor(), 2);
+        assertEquals(List.of(3L), second.visits().stream().map(VisitInformation::visit_id).toList());
+        assertNull(second.next_cursor());
+    }
+
+    @Test
+    public void searchVisitsCursorBreaksTiesOnIdTest() {
+        // Same date and time as visit 1, for another vet: ordered after it by id
+        veterinariansService.createAvailability(2L, new AvailabilityCommand(1, "09:00", "12:00", "2025-10-27", "2025-10-27"));
+        Long twin = visitsService.createVisit(new VisitCommand("2025-10-27", "09:30", 30, "Twin", 20.0, 2L, 2L, 5L));
+
+        VisitPageInformation first = visitsService.searchVisits(NO_FILTER, null, 1);
+        VisitPageInformation second = visitsService.searchVisits(NO_FILTER, first.next_cursor(), 1);
+
+        assertEquals(1L, first.visits().get(0).visit_id());
+        assertEquals(twin, second.visits().get(0).visit_id());
+    }
+
+    @Test
+    public void searchVisitsFiltersTest() {
+        VisitSearchCommand byVet = new VisitSearchCommand(1L, null, null, null, null, null);
+        assertEquals(2, visitsService.searchVisits(byVet, null, 50).visits().size());
+
+        VisitSearchCommand byStatus = new VisitSearchCommand(null, null, null, VisitStatus.COMPLETED, null, null);
+        assertEquals(List.of(2L), visitsService.searchVisits(byStatus, null, 50).visits().stream().map(VisitInformation::visit_id).toList());
+
+        VisitSearchCommand byOwnerAndRange = new VisitSearchCommand(null, null, 6L, null, LocalDate.parse("2025-10-29"), LocalDate.parse("2025-10-29"));
+        assertEquals(List.of(3L), visitsService.searchVisits(byOwnerAndRange, null, 50).visits().stream().map(VisitInformation::visit_id).toList());
+    }
+
+    @Test
+    public void searchVisitsOnlyQueriesTheFiltersGivenTest() {
+        VisitSearchCommand byVetAndRange = new VisitSearchCommand(1L, null, null, null, LocalDate.parse("2025-10-01"), null);
+
+        String[] queries = measure(() -> visitsService.searchVisits(byVetAndRange, null, 50)).getQueries();
+
+        assertEquals(1, queries.length);
+        assertTrue(queries[0].contains("v.veterinarian.id = :veterinarianId"));
+        assertTrue(queries[0].contains("v.visitDate >= :start"));
+        assertFalse(queries[0].contains("IS NULL"));
+        assertFalse(queries[0].contains(":petId"));
+    }
+
+    @Test
+    public void searchVisitsInvalidArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> visitsService.searchVisits(NO_FILTER, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.searchVisits(NO_FILTER, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.searchVisits(NO_FILTER, null, 501));
+    }
 
     @Test
-    public void getAllVisitsTest() {
-        List<VisitInformation> visits = visitsService.getAllVisits();
-        assertNotNull(visits);
-        assertEquals(3, visits.size());
+    public void streamVisitsVisitsEveryMatchInOrderTest() {
+        List<Long> streamed = new ArrayList<>();
+        visitsService.streamVisits(new VisitSearchCommand(null, 2L, null, null, null, null), v -> streamed.add(v.visit_id()));
+        assertEquals(List.of(2L), streamed);
+
+        streamed.clear();
+        visitsService.streamVisits(NO_FILTER, v -> streamed.add(v.visit_id()));
+        assertEquals(List.of(1L, 2L, 3L), streamed);
     }
 
     // ========== createVisit Tests ==========
@@ -240,6 +434,335 @@ public class VisitsServiceTest {
             visitsService.rescheduleVisit(1L, "invalid-date", "10:00", "User"));
     }
 
+    // ========== Prescription fetching Tests ==========
+
+    @Test
+    public void schedulingReadsDoNotLoadPrescriptionsTest() {
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(2, "Twice a day", 5));
+
+        Statistics visitRead = measure(() -> visitsService.getVisitById(3L));
+        assertEquals(0, visitRead.getCollectionFetchCount());
+        Statistics allVisits = measure(() -> visitsService.searchVisits(NO_FILTER, null, 50));
+        assertEquals(0, allVisits.getCollectionFetchCount());
+    }
+
+    @Test
+    public void listMedicationPrescriptionsFetchesThemWithTheVisitTest() {
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(2, "Twice a day", 5));
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Once a day", 5));
+
+        Statistics statistics = measure(() -> assertEquals(2, visitsService.listMedicationPrescriptions(3L).size()));
+
+        // Prescriptions and medications come joined with the visit; the other statement is the invoice lookup
+        assertEquals(0, statistics.getCollectionFetchCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 2);
+    }
+
+    // ========== Slot availability index Tests ==========
+
+    @Test
+    public void createVisitOverlappingExistingVisitTest() {
+        // Visit 1: 2025-10-27 09:30-10:00, Vet 1
+        VisitCommand command = new VisitCommand("2025-10-27", "09:45", 30, "Overlap", 20.0, 1L, 1L, 4L);
+        assertThrows(VisitSlotUnavailableException.class, () -> visitsService.createVisit(command));
+    }
+
+    @Test
+    public void createVisitOutsideAvailabilityTest() {
+        VisitCommand command = new VisitCommand("2025-11-03", "11:45", 30, "Too late", 20.0, 1L, 1L, 4L);
+        assertThrows(VisitSlotUnavailableException.class, () -> visitsService.createVisit(command));
+    }
+
+    @Test
+    public void cancelVisitFreesItsSlotTest() {
+        VisitCommand command = new VisitCommand("2025-10-27", "09:30", 30, "Same slot", 20.0, 1L, 1L, 4L);
+        assertThrows(VisitSlotUnavailableException.class, () -> visitsService.createVisit(command));
+
+        visitsService.cancelVisit(1L);
+
+        assertNotNull(visitsService.createVisit(command));
+    }
+
+    @Test
+    public void rescheduleVisitMovesItsSlotTest() {
+        assertFalse(veterinariansService.isSlotAvailable(1L, LocalDate.parse("2025-10-27"), LocalTime.parse("09:30"), LocalTime.parse("10:00"), null));
+
+        visitsService.rescheduleVisit(1L, "2025-11-03", "10:00", "Receptionist");
+
+        assertTrue(veterinariansService.isSlotAvailable(1L, LocalDate.parse("2025-10-27"), LocalTime.parse("09:30"), LocalTime.parse("10:00"), null));
+        assertThrows(VisitSlotUnavailableException.class, () ->
+                visitsService.createVisit(new VisitCommand("2025-11-03", "10:15", 15, "Overlap", 20.0, 1L, 1L, 4L)));
+        // Moving the visit inside its own slot is allowed
+        assertNotNull(visitsService.rescheduleVisit(1L, "2025-11-03", "10:15", "Receptionist"));
+    }
+
+    @Test
+    public void availabilityExceptionBlocksCachedDayTest() {
+        LocalDate monday = LocalDate.parse("2025-11-03");
+        assertTrue(veterinariansService.isSlotAvailable(1L, monday, LocalTime.parse("10:30"), LocalTime.parse("10:45"), null));
+
+        veterinariansService.createException(1L, new ExceptionCommand("Training", 1, "10:00", "11:00", "2025-11-01", "2025-11-30"));
+
+        assertFalse(veterinariansService.isSlotAvailable(1L, monday, LocalTime.parse("10:30"), LocalTime.parse("10:45"), null));
+        assertEquals(LocalTime.parse("11:00"), slotAvailabilityIndex.firstFreeSlot(1L, monday, LocalTime.parse("09:30"), 60).orElseThrow());
+    }
+
+    @Test
+    public void slotIndexAnswersWarmDaysWithoutQueriesTest() {
+        LocalDate monday = LocalDate.parse("2025-11-03");
+        long cold = countStatements(() -> slotAvailabilityIndex.isFree(1L, monday, LocalTime.parse("09:00"), LocalTime.parse("09:30"), null));
+        long warm = countStatements(() -> slotAvailabilityIndex.isFree(1L, monday, LocalTime.parse("09:30"), LocalTime.parse("10:00"), null));
+
+        assertTrue(cold > 0);
+        assertEquals(0, warm);
+    }
+
+    @Test
+    public void slotIndexNeverCachesADayLoadedWhileABookingCommitsTest() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Vet 1's Mondays of 2025 from February on, each one first read while a booking of it commits
+            for (LocalDate monday = LocalDate.parse("2025-02-03"); monday.getYear() == 2025; monday = monday.plusWeeks(1)) {
+                LocalDate day = monday;
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> booking = pool.submit(() -> {
+                    start.await();
+                    return visitsService.createVisit(new VisitCommand(day.toString(), "09:00", 30, "Race", 20.0, 1L, 1L, 4L));
+                });
+                Future<?> read = pool.submit(() -> {
+                    start.await();
+                    return slotAvailabilityIndex.isFree(1L, day, LocalTime.parse("09:00"), LocalTime.parse("09:30"), null);
+                });
+                start.countDown();
+                booking.get(30, TimeUnit.SECONDS);
+                read.get(30, TimeUnit.SECONDS);
+
+                assertFalse(slotAvailabilityIndex.isFree(1L, day, LocalTime.parse("09:00"), LocalTime.parse("09:30"), null), day.toString());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slotIndexReloadsADayBookedByAnotherInstanceTest() {
+        visitsService.createVisit(new VisitCommand("2025-11-03", "09:00", 30, "Local", 20.0, 1L, 1L, 4L));
+        // The day is cached and stamped with its ledger version: local bookings do not read it again
+        long warm = countStatements(() -> visitsService.createVisit(new VisitCommand("2025-11-03", "09:30", 30, "Local", 20.0, 1L, 2L, 5L)));
+
+        // Another instance books 10:00-10:30 and bumps the ledger row
+        jdbcTemplate.update("""
+                insert into visit (id, visit_date, visit_time, duration, reason, pricer_per_fifteen, status, veterinarian_id, pet_id, pet_owner_id)
+                values (9000, '2025-11-03', '10:00', 30, 'Remote', 20.0, 'SCHEDULED', 1, 3, 6)""");
+        jdbcTemplate.update("update booking_ledger set version = version + 1 where veterinarian_id = 1 and booking_date = '2025-11-03'");
+
+        // The day and the availabilities are read again once, then the day is warm again
+        assertEquals(warm + 2, countStatements(() ->
+                visitsService.createVisit(new VisitCommand("2025-11-03", "11:00", 30, "Local", 20.0, 1L, 1L, 4L))));
+        assertThrows(VisitSlotUnavailableException.class, () ->
+                visitsService.createVisit(new VisitCommand("2025-11-03", "10:15", 30, "Local", 20.0, 1L, 1L, 4L)));
+        assertFalse(slotAvailabilityIndex.isFree(1L, LocalDate.parse("2025-11-03"), LocalTime.parse("10:00"), LocalTime.parse("10:30"), null));
+        assertEquals(warm, countStatements(() ->
+                visitsService.createVisit(new VisitCommand("2025-11-03", "11:30", 30, "Local", 20.0, 1L, 2L, 5L))));
+    }
+
+    // ========== Concurrent booking Tests ==========
+
+    /**
+     * Runs every booking on its own thread, all released at once, and returns how many of them succeeded.
+     */
+    private long bookConcurrently(List<VisitCommand> commands) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(commands.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (VisitCommand command : commands) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        visitsService.createVisit(command);
+                        return true;
+                    } catch (VisitSlotUnavailableException | BookingConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            long booked = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) booked++;
+            }
+            return booked;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentOverlappingBookingsNeverDoubleBookTest() throws Exception {
+        List<VisitCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            String time = i % 2 == 0 ? "10:00" : "10:15";
+            commands.add(new VisitCommand("2025-11-03", time, 30, "Race " + i, 20.0, 1L, 1L, 4L));
+        }
+
+        assertEquals(1, bookConcurrently(commands));
+        assertEquals(1, visitsService.getVisitsForVeterinarianAndRange(1L,
+                LocalDate.parse("2025-11-03"), LocalDate.parse("2025-11-03")).size());
+    }
+
+    @Test
+    public void concurrentNonOverlappingBookingsAllSucceedTest() throws Exception {
+        List<VisitCommand> commands = new ArrayList<>();
+        for (String date : List.of("2025-11-03", "2025-11-10")) {
+            for (String time : List.of("09:00", "09:30", "10:00", "10:30", "11:00", "11:30")) {
+                commands.add(new VisitCommand(date, time, 30, "Parallel", 20.0, 1L, 1L, 4L));
+            }
+        }
+
+        assertEquals(12, bookConcurrently(commands));
+        assertEquals(12, visitsService.getVisitsForVeterinarianAndRange(1L,
+                LocalDate.parse("2025-11-03"), LocalDate.parse("2025-11-10")).size());
+    }
+
+    // ========== findFreeSlots Tests ==========
+
+    private LocalDate availableMondayForVet3() {
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY)).plusWeeks(1);
+        veterinariansService.createAvailability(3L, new AvailabilityCommand(1, "09:00", "10:00",
+                monday.toString(), monday.plusWeeks(4).toString()));
+        return monday;
+    }
+
+    @Test
+    public void findFreeSlotsSkipsBookedTimeTest() {
+        LocalDate monday = availableMondayForVet3();
+
+        List<FreeSlotInformation> slots = visitsService.findFreeSlots(monday, monday, 30, 10);
+        assertEquals(List.of(LocalTime.parse("09:00"), LocalTime.parse("09:15"), LocalTime.parse("09:30")),
+                slots.stream().map(FreeSlotInformation::start_time).toList());
+        assertTrue(slots.stream().allMatch(slot -> slot.veterinarian_id().equals(3L)));
+
+        visitsService.createVisit(new VisitCommand(monday.toString(), "09:15", 15, "Booked", 20.0, 3L, 1L, 4L));
+
+        slots = visitsService.findFreeSlots(monday, monday, 30, 10);
+        assertEquals(List.of(LocalTime.parse("09:30")), slots.stream().map(FreeSlotInformation::start_time).toList());
+    }
+
+    @Test
+    public void findFreeSlotsStopsAtLimitInDateOrderTest() {
+        LocalDate monday = availableMondayForVet3();
+
+        List<FreeSlotInformation> slots = visitsService.findFreeSlots(monday.minusDays(3), monday.plusWeeks(1), 60, 2);
+
+        assertEquals(2, slots.size());
+        assertEquals(monday, slots.get(0).date());
+        assertEquals(monday.plusWeeks(1), slots.get(1).date());
+        assertEquals(LocalTime.parse("10:00"), slots.get(0).end_time());
+    }
+
+    @Test
+    public void findFreeSlotsQueryCountDoesNotGrowWithRangeTest() {
+        LocalDate monday = availableMondayForVet3();
+
+        long oneDay = countStatements(() -> visitsService.findFreeSlots(monday, monday, 15, 100));
+        long month = countStatements(() -> visitsService.findFreeSlots(monday, monday.plusDays(30), 15, 100));
+
+        assertEquals(oneDay, month);
+        assertTrue(month <= 2);
+    }
+
+    @Test
+    public void findFreeSlotsInvalidRangeTest() {
+        LocalDate today = LocalDate.now();
+        assertThrows(IllegalArgumentException.class, () -> visitsService.findFreeSlots(today, today.minusDays(1), 15, 10));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.findFreeSlots(today, today.plusDays(31), 15, 10));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.findFreeSlots(today, today, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.findFreeSlots(today, today, 15, 0));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.findFreeSlots(today, today, 15, 2_000_000_000));
+    }
+
+    // ========== Walk-in assignment Tests ==========
+
+    /**
+     * All three vets work 09:00-12:00 on the returned Monday; vet 1 has 60 booked minutes and vet 2 has 30.
+     */
+    private LocalDate mondayWithLoadedVets() {
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY)).plusWeeks(1);
+        for (long vetId = 1; vetId <= 3; vetId++) {
+            veterinariansService.createAvailability(vetId, new AvailabilityCommand(1, "09:00", "12:00",
+                    monday.toString(), monday.toString()));
+        }
+        visitsService.createVisit(new VisitCommand(monday.toString(), "09:00", 30, "Load", 20.0, 1L, 1L, 4L));
+        visitsService.createVisit(new VisitCommand(monday.toString(), "09:30", 30, "Load", 20.0, 1L, 1L, 4L));
+        visitsService.createVisit(new VisitCommand(monday.toString(), "09:00", 30, "Load", 20.0, 2L, 2L, 5L));
+        return monday;
+    }
+
+    private Long assignedVet(LocalDate date, LocalTime time, Policy policy) {
+        return walkInAssignmentEngine.assign(date, time, 30, policy).map(Veterinarian::getId).orElseThrow();
+    }
+
+    @Test
+    public void walkInAssignmentPoliciesTest() {
+        LocalDate monday = mondayWithLoadedVets();
+        LocalTime ten = LocalTime.parse("10:00");
+
+        assertEquals(1L, assignedVet(monday, ten, Policy.FIRST_FIT));
+        assertEquals(3L, assignedVet(monday, ten, Policy.LEAST_LOADED));
+        // Vet 1 is busy at 09:15, vet 2 too, so only vet 3 is a candidate
+        assertEquals(3L, assignedVet(monday, LocalTime.parse("09:15"), Policy.FIRST_FIT));
+        assertTrue(walkInAssignmentEngine.assign(monday, LocalTime.parse("11:45"), 30, Policy.FIRST_FIT).isEmpty());
+    }
+
+    @Test
+    public void walkInRoundRobinCyclesThroughFreeVetsTest() {
+        LocalDate monday = mondayWithLoadedVets();
+        LocalTime ten = LocalTime.parse("10:00");
+
+        List<Long> assigned = List.of(
+                assignedVet(monday, ten, Policy.ROUND_ROBIN),
+                assignedVet(monday, ten, Policy.ROUND_ROBIN),
+                assignedVet(monday, ten, Policy.ROUND_ROBIN),
+                assignedVet(monday, ten, Policy.ROUND_ROBIN));
+
+        assertEquals(Set.of(1L, 2L, 3L), Set.copyOf(assigned.subList(0, 3)));
+        assertEquals(assigned.get(0), assigned.get(3));
+    }
+
+    @Test
+    public void concurrentRoundRobinWalkInsShareTheTurnsEvenlyTest() throws Exception {
+        LocalDate monday = mondayWithLoadedVets();
+        LocalTime ten = LocalTime.parse("10:00");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return assignedVet(monday, ten, Policy.ROUND_ROBIN);
+                }));
+            }
+            start.countDown();
+            Map<Long, Integer> turns = new HashMap<>();
+            for (Future<Long> result : results) turns.merge(result.get(30, TimeUnit.SECONDS), 1, Integer::sum);
+
+            assertEquals(Map.of(1L, 10, 2L, 10, 3L, 10), turns);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void walkInAssignmentQueryCountDoesNotGrowWithVetsTest() {
+        LocalDate monday = mondayWithLoadedVets();
+
+        long statements = countStatements(() -> walkInAssignmentEngine.assign(monday, LocalTime.parse("10:00"), 30, Policy.LEAST_LOADED));
+
+        assertTrue(statements <= 2, "walk-in assignment ran " + statements + " statements");
+    }
+
     // ========== getVisitsForVeterinarianAndRange Tests ==========
 
     @Test
@@ -251,6 +774,34 @@ public class VisitsServiceTest {
         assertEquals(2, visits.size());
     }
 
+    @Test
+    public void getVisitsForVeterinarianAndRangeIsSortedByDateAndTimeTest() {
+        visitsService.createVisit(new VisitCommand("2025-11-03", "11:00", 15, "Later", 20.0, 1L, 1L, 4L));
+        visitsService.createVisit(new VisitCommand("2025-11-03", "09:15", 15, "Earlier", 20.0, 1L, 1L, 4L));
+
+        List<VisitInformation> visits = visitsService.getVisitsForVeterinarianAndRange(
+                1L, LocalDate.parse("2025-10-01"), LocalDate.parse("2025-12-31"));
+
+        assertEquals(4, visits.size());
+        assertEquals("2025-10-27", visits.get(0).visitDate());
+        assertEquals("09:15", visits.get(2).visitTime());
+        assertEquals("11:00", visits.get(3).visitTime());
+    }
+
+    @Test
+    public void getVisitsForVeterinarianAndRangeQueryCountDoesNotGrowWithRangeTest() {
+        long oneDay = countStatements(() -> visitsService.getVisitsForVeterinarianAndRange(
+                1L, LocalDate.parse("2025-10-27"), LocalDate.parse("2025-10-27")));
+        long quarter = countStatements(() -> visitsService.getVisitsForVeterinarianAndRange(
+                1L, LocalDate.parse("2025-10-01"), LocalDate.parse("2025-12-31")));
+        long year = countStatements(() -> visitsService.getVisitsForVeterinarianAndRange(
+                1L, LocalDate.parse("2025-01-01"), LocalDate.parse("2025-12-31")));
+
+        assertEquals(oneDay, quarter);
+        assertEquals(oneDay, year);
+        assertTrue(oneDay <= 2, "vet lookup plus one range query expected, got " + oneDay);
+    }
+
     @Test
     public void getVisitsForVeterinarianAndRangeVetNotFoundTest() {
         assertThrows(VeterinarianDoesNotExistException.class, () -> 
@@ -270,6 +821,19 @@ public class VisitsServiceTest {
         assertEquals(1, list.size());
     }
 
+    @Test
+    public void addMedicationPrescriptionReturnsItsOwnIdTest() {
+        // Another instance took a later block of ids and already prescribed on this visit
+        jdbcTemplate.update("INSERT INTO medication_prescription (id, duration_in_days, quantity_prescribed, medication_id, visit_id, dosage_instructions) "
+                + "VALUES (1000000, 5, 1, 2, 3, 'From another instance')");
+
+        Long prescriptionId = visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+
+        assertTrue(prescriptionId < 1000000);
+        assertEquals("Take daily", jdbcTemplate.queryForObject(
+                "SELECT dosage_instructions FROM medication_prescription WHERE id = ?", String.class, prescriptionId));
+    }
+
     @Test
     public void addMedicationPrescriptionVisitNotFoundTest() {
         MedicationPrescriptionCommand command = new MedicationPrescriptionCommand(1, "Take daily", 7);
@@ -311,6 +875,514 @@ public class VisitsServiceTest {
         assertTrue(list.isEmpty());
     }
 
+    // ========== Prescription report Tests ==========
+
+    @Test
+    public void prescriptionReportsCountFromTheDailyRollupTest() {
+        LocalDate from = LocalDate.parse("2025-10-01");
+        LocalDate to = LocalDate.parse("2025-10-31");
+        Long first = visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        Long onVisit2 = visitsService.addMedicationPrescription(2L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+
+        List<MedicationPrescriptionCountInformation> medications = visitsService.listMedicationPrescriptionsByPeriod(from, to);
+        assertEquals(1, medications.size());
+        assertEquals(1L, medications.get(0).medicationId());
+        assertEquals("Amoxicillin", medications.get(0).medicationName());
+        assertEquals(3L, medications.get(0).prescriptionCount());
+        // Two visits on two days by two veterinarians: one rollup row per day and veterinarian
+        assertEquals(2, prescriptionDailyRollupRepository.count());
+
+        List<VeterinarianPrescriptionCountInformation> veterinarians = visitsService.listVeterinariansByMedicationPrescriptions(1L, from, to);
+        assertEquals(List.of(2L, 1L), veterinarians.stream().map(VeterinarianPrescriptionCountInformation::veterinarianId).toList());
+        assertEquals(2L, veterinarians.get(0).prescriptionCount());
+
+        visitsService.deleteMedicationPrescription(3L, first);
+        visitsService.updateMedicationPrescription(2L, onVisit2, new MedicationPrescriptionCommand(2, "Take twice daily", 7));
+
+        assertEquals(2L, visitsService.listMedicationPrescriptionsByPeriod(from, to).get(0).prescriptionCount());
+        assertEquals(1L, visitsService.listVeterinariansByMedicationPrescriptions(1L, from, to).get(0).prescriptionCount());
+        assertEquals(1, visitsService.listVeterinariansByMedicationPrescriptions(1L, from, LocalDate.parse("2025-10-28")).size());
+    }
+
+    @Test
+    public void deleteVisitRemovesItsPrescriptionsFromTheReportsTest() {
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+
+        visitsService.deleteVisit(3L);
+
+        assertTrue(visitsService.listMedicationPrescriptionsByPeriod(LocalDate.parse("2025-10-01"), LocalDate.parse("2025-10-31")).isEmpty());
+    }
+
+    @Test
+    public void backfillRebuildsTheRollupFromThePrescriptionsTest() {
+        LocalDate from = LocalDate.parse("2025-10-01");
+        LocalDate to = LocalDate.parse("2025-10-31");
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        prescriptionDailyRollupRepository.deleteAll();
+        assertTrue(visitsService.listMedicationPrescriptionsByPeriod(from, to).isEmpty());
+
+        assertEquals(1, prescriptionRollupService.backfill());
+
+        assertEquals(2L, visitsService.listMedicationPrescriptionsByPeriod(from, to).get(0).prescriptionCount());
+        assertEquals(2L, visitsService.listVeterinariansByMedicationPrescriptions(1L, from, to).get(0).veterinarianId());
+    }
+
+    @Test
+    public void concurrentFirstPrescriptionsOfARollupRowAreAllCountedTest() throws Exception {
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        Visit visit = visitRepository.findWithPrescriptionsById(3L).orElseThrow();
+        MedicationPrescription prescription = visit.getMedicationPrescriptions().get(0);
+        prescriptionDailyRollupRepository.deleteAll();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    prescriptionRollupService.prescriptionAdded(visit, prescription);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) result.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, prescriptionDailyRollupRepository.count());
+        assertEquals(8L, prescriptionDailyRollupRepository.findAll().get(0).getPrescriptionCount());
+    }
+
+    @Test
+    public void firstPrescriptionOfARollupRowUsesOneConnectionTest() {
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        Visit visit = visitRepository.findWithPrescriptionsById(3L).orElseThrow();
+        MedicationPrescription prescription = visit.getMedicationPrescriptions().get(0);
+        prescriptionDailyRollupRepository.deleteAll();
+
+        Statistics statistics = measure(() -> prescriptionRollupService.prescriptionAdded(visit, prescription));
+
+        assertEquals(1, statistics.getConnectCount());
+        assertEquals(1L, prescriptionDailyRollupRepository.findAll().get(0).getPrescriptionCount());
+    }
+
+    @Test
+    public void reconcileAllFixesTheRollupRowsThatDriftedTest() {
+        LocalDate from = LocalDate.parse("2025-10-01");
+        LocalDate to = LocalDate.parse("2025-10-31");
+        visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        visitsService.addMedicationPrescription(2L, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        // One row overwritten and one lost behind the application's back
+        jdbcTemplate.update("UPDATE prescription_daily_rollup SET prescription_count = 5 WHERE veterinarian_id = 2");
+        jdbcTemplate.update("DELETE FROM prescription_daily_rollup WHERE veterinarian_id = 1");
+        double drift = meterRegistry.get("prescriptions.rollup.drift").counter().count();
+
+        assertEquals(2, prescriptionRollupService.reconcileAll());
+
+        assertEquals(2L, visitsService.listMedicationPrescriptionsByPeriod(from, to).get(0).prescriptionCount());
+        assertEquals(2, prescriptionDailyRollupRepository.count());
+        assertEquals(drift + 2, meterRegistry.get("prescriptions.rollup.drift").counter().count());
+        assertEquals(0, prescriptionRollupService.reconcileAll());
+    }
+
+    // ========== Import Tests ==========
+
+    private static List<VisitCommand> quarterHourVisits(LocalDate day, int count) {
+        List<VisitCommand> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commands.add(new VisitCommand(day.toString(), LocalTime.parse("09:00").plusMinutes(15L * i).toString(),
+                    15, "Checkup", 20.0, 1L, 1L, 4L));
+        }
+        return commands;
+    }
+
+    @Test
+    public void importVisitsInsertsThemInJdbcBatchesTest() {
+        // Vet 1 works Mondays 09:00-12:00: room for 12 visits of 15 minutes
+        List<VisitCommand> monday = quarterHourVisits(LocalDate.parse("2025-11-03"), 12);
+        List<VisitCommand> nextMonday = quarterHourVisits(LocalDate.parse("2025-11-10"), 12);
+
+        long oneByOne = countStatements(() -> nextMonday.forEach(visitsService::createVisit));
+        Statistics imported = measure(() -> assertEquals(12, visitsService.importVisits(monday).size()));
+
+        assertEquals(12 + 1, imported.getEntityInsertCount()); // the visits and the day's booking ledger row
+        // Three lookups, loading the day into the slot index, the ledger row, one sequence call and one insert batch
+        assertTrue(imported.getPrepareStatementCount() <= 9);
+        assertTrue(oneByOne >= 12 * 3);
+        assertEquals(27, countVisits());
+    }
+
+    @Test
+    public void importVisitsRejectsVisitsOverlappingEachOtherTest() {
+        List<VisitCommand> commands = new ArrayList<>(quarterHourVisits(LocalDate.parse("2025-11-03"), 2));
+        commands.add(new VisitCommand("2025-11-03", "09:10", 15, "Checkup", 20.0, 1L, 2L, 5L));
+
+        assertThrows(VisitSlotUnavailableException.class, () -> visitsService.importVisits(commands));
+        assertEquals(3, countVisits());
+        // Nothing of the failed import stays booked
+        assertEquals(1, visitsService.importVisits(quarterHourVisits(LocalDate.parse("2025-11-03"), 1)).size());
+    }
+
+    @Test
+    public void importVisitsRejectsAnEmptyOrOversizedImportTest() {
+        assertThrows(IllegalArgumentException.class, () -> visitsService.importVisits(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.importVisits(
+                Collections.nCopies(1001, quarterHourVisits(LocalDate.parse("2025-11-03"), 1).get(0))));
+    }
+
+    // ========== Recurring Visit Tests ==========
+
+    private static RecurringVisitCommand recurring(String firstDate, String time, String recurrence) {
+        return new RecurringVisitCommand(firstDate, time, 30, "Physiotherapy", 20.0, 1L, 1L, 4L, recurrence);
+    }
+
+    @Test
+    public void bookRecurringVisitsReportsTheOccurrencesThatConflictTest() {
+        visitsService.createVisit(new VisitCommand("2025-11-10", "10:15", 15, "Checkup", 20.0, 1L, 2L, 5L));
+
+        // Mondays from 2025-11-03 to 2026-01-05; vet 1's Monday availability ends on 2025-12-31
+        RecurringVisitBookingInformation info = visitsService.bookRecurringVisits(recurring("2025-11-03", "10:00", "FREQ=WEEKLY;COUNT=10"));
+
+        assertEquals(8, info.booked());
+        assertEquals(2, info.conflicts());
+        assertEquals(10, info.occurrences().size());
+        assertEquals(LocalDate.parse("2025-11-10"), info.occurrences().get(1).visit_date());
+        assertNull(info.occurrences().get(1).visit_id());
+        assertNotNull(info.occurrences().get(1).conflict());
+        assertNull(info.occurrences().get(9).visit_id());
+        assertNotNull(info.occurrences().get(0).visit_id());
+        assertEquals("2025-12-29", visitsService.getVisitById(info.occurrences().get(8).visit_id()).visitDate());
+        assertEquals(3 + 1 + 8, countVisits());
+    }
+
+    @Test
+    public void bookRecurringVisitsLoadsTheWholeWindowAtOnceTest() {
+        Statistics few = measure(() -> visitsService.bookRecurringVisits(recurring("2025-01-06", "09:00", "FREQ=WEEKLY;COUNT=5")));
+        long fewStatements = few.getPrepareStatementCount();
+        Statistics many = measure(() -> visitsService.bookRecurringVisits(recurring("2025-02-10", "10:00", "FREQ=WEEKLY;COUNT=20")));
+
+        assertEquals(20 * 2, many.getEntityInsertCount()); // the visits and their booking ledger rows
+        assertTrue(many.getPrepareStatementCount() <= fewStatements + 2);
+    }
+
+    @Test
+    public void bookRecurringVisitsRejectsInvalidRecurrencesTest() {
+        assertThrows(IllegalArgumentException.class, () -> visitsService.bookRecurringVisits(recurring("2025-11-03", "10:00", "FREQ=WEEKLY")));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.bookRecurringVisits(recurring("2025-11-03", "10:00", "FREQ=YEARLY;COUNT=2")));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.bookRecurringVisits(recurring("2025-11-03", "10:00", "FREQ=DAILY;UNTIL=2028-01-01")));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.bookRecurringVisits(recurring("2025-11-03", "10:00", "FREQ=WEEKLY;UNTIL=2025-11-02")));
+        assertEquals(3, countVisits());
+
+        assertEquals(List.of(LocalDate.parse("2025-01-31"), LocalDate.parse("2025-02-28"), LocalDate.parse("2025-03-31")),
+                RecurrenceRule.parse("RRULE:FREQ=MONTHLY;COUNT=3").occurrences(LocalDate.parse("2025-01-31"), 10));
+        assertEquals(List.of(LocalDate.parse("2025-11-03"), LocalDate.parse("2025-11-17")),
+                RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;UNTIL=20251130").occurrences(LocalDate.parse("2025-11-03"), 10));
+    }
+
+    // ========== Batch Transition Tests ==========
+
+    @Test
+    public void applyVisitTransitionsReportsTheOutcomeOfEachItemTest() {
+        List<VisitTransitionOutcomeInformation> outcomes = visitsService.applyVisitTransitions(List.of(
+                new VisitTransitionCommand(1L, "NO_SHOW"),
+                new VisitTransitionCommand(2L, "START"),
+                new VisitTransitionCommand(3L, "COMPLETE"),
+                new VisitTransitionCommand(3L, "CANCEL"),
+                new VisitTransitionCommand(999L, "CANCEL")), VisitTransitionCommand.ACTIONS);
+
+        assertEquals(5, outcomes.size());
+        assertEquals("NOT_SHOWED_UP", outcomes.get(0).status());
+        assertNull(outcomes.get(0).error());
+        assertEquals("COMPLETED", outcomes.get(1).status());
+        assertNotNull(outcomes.get(1).error());
+        assertEquals("COMPLETED", outcomes.get(2).status());
+        assertNotNull(outcomes.get(3).error());
+        assertNull(outcomes.get(4).status());
+        assertNotNull(outcomes.get(4).error());
+        assertEquals(VisitStatus.NOT_SHOWED_UP, visitsService.getVisitById(1L).status());
+        assertEquals(VisitStatus.COMPLETED, visitsService.getVisitById(3L).status());
+        assertEquals(1, visitHistoryRepository.count());
+    }
+
+    @Test
+    public void applyVisitTransitionsFlushesTheChangesInJdbcBatchesTest() {
+        List<Long> ids = visitsService.importVisits(quarterHourVisits(LocalDate.parse("2025-11-03"), 12));
+        List<VisitTransitionCommand> commands = new ArrayList<>();
+        ids.subList(0, 6).forEach(id -> commands.add(new VisitTransitionCommand(id, "CANCEL")));
+        ids.subList(6, 12).forEach(id -> commands.add(new VisitTransitionCommand(id, "START")));
+
+        Statistics statistics = measure(() -> assertTrue(visitsService.applyVisitTransitions(commands, VisitTransitionCommand.ACTIONS).stream()
+                .allMatch(outcome -> outcome.error() == null)));
+
+        assertEquals(6, statistics.getEntityInsertCount());
+        assertEquals(12, statistics.getEntityUpdateCount());
+        // One query for the visits, one sequence call, one insert batch and one update batch
+        assertTrue(statistics.getPrepareStatementCount() <= 4);
+        assertEquals(6, visitHistoryRepository.count());
+        assertTrue(slotAvailabilityIndex.isFree(1L, LocalDate.parse("2025-11-03"), LocalTime.parse("09:00"), LocalTime.parse("09:15"), null));
+    }
+
+    @Test
+    public void applyVisitTransitionsRejectsAnEmptyOrOversizedBatchTest() {
+        assertThrows(IllegalArgumentException.class, () -> visitsService.applyVisitTransitions(List.of(), VisitTransitionCommand.ACTIONS));
+        assertThrows(IllegalArgumentException.class, () -> visitsService.applyVisitTransitions(
+                Collections.nCopies(501, new VisitTransitionCommand(1L, "START")), VisitTransitionCommand.ACTIONS));
+    }
+
+    @Test
+    public void applyVisitTransitionsRejectsTheActionsNotPermittedTest() {
+        // A receptionist may only cancel
+        List<VisitTransitionOutcomeInformation> outcomes = visitsService.applyVisitTransitions(List.of(
+                new VisitTransitionCommand(3L, "COMPLETE"),
+                new VisitTransitionCommand(1L, "CANCEL")), Set.of("CANCEL"));
+
+        assertNull(outcomes.get(0).status());
+        assertEquals("Not allowed to apply COMPLETE to visits", outcomes.get(0).error());
+        assertEquals("CANCELLED", outcomes.get(1).status());
+        assertNull(outcomes.get(1).error());
+        assertEquals(VisitStatus.IN_PROGRESS, visitsService.getVisitById(3L).status());
+    }
+
+    @Test
+    public void transitionPermissionsFollowTheSingleVisitRulesTest() {
+        assertEquals(Set.of("CANCEL"), VisitTransitionPermissions.permittedActions(
+                new TestingAuthenticationToken("receptionist", null, "SCOPE_RECEPTIONIST")));
+        assertEquals(Set.of("CANCEL"), VisitTransitionPermissions.permittedActions(
+                new TestingAuthenticationToken("owner", null, "SCOPE_PET_OWNER")));
+        assertEquals(VisitTransitionCommand.ACTIONS, VisitTransitionPermissions.permittedActions(
+                new TestingAuthenticationToken("vet", null, "SCOPE_VETERINARIAN")));
+        assertEquals(VisitTransitionCommand.ACTIONS, VisitTransitionPermissions.permittedActions(
+                new TestingAuthenticationToken("manager", null, "SCOPE_RECEPTIONIST", "SCOPE_CLINIC_MANAGER")));
+    }
+
+    // ========== No-show Detection Tests ==========
+
+    @Test
+    public void detectNoShowsMarksTheOverdueScheduledVisitsPageByPageTest() {
+        visitsService.importVisits(quarterHourVisits(LocalDate.parse("2025-11-03"), 12));
+        NoShowDetectionJob job = new NoShowDetectionJob(visitsService, meterRegistry, Duration.ofMinutes(15), 2);
+        double detected = meterRegistry.get("visits.no-show.detected").counter().count();
+        long runs = meterRegistry.get("visits.no-show.run").timer().count();
+
+        // Due by 09:45: visit 1 (2025-10-27) and the visits of 09:00 to 09:45, in three pages
+        assertEquals(5, job.detectNoShows(LocalDateTime.parse("2025-11-03T10:00")));
+
+        assertEquals(VisitStatus.NOT_SHOWED_UP, visitsService.getVisitById(1L).status());
+        assertEquals(VisitStatus.COMPLETED, visitsService.getVisitById(2L).status());
+        assertEquals(4, visitsService.getVisitsForVeterinarianAndRange(1L, LocalDate.parse("2025-11-03"), LocalDate.parse("2025-11-03")).stream()
+                .filter(visit -> visit.status() == VisitStatus.NOT_SHOWED_UP).count());
+        assertEquals(5, visitHistoryRepository.count());
+        assertEquals(detected + 5, meterRegistry.get("visits.no-show.detected").counter().count());
+        assertEquals(runs + 1, meterRegistry.get("visits.no-show.run").timer().count());
+
+        assertEquals(0, job.detectNoShows(LocalDateTime.parse("2025-11-03T10:00")));
+    }
+
+    @Test
+    public void noShowMarkingLeavesVisitsNoLongerScheduledAloneTest() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Visit 3 was started, as if by a veterinarian after the job read it; visit 1 is marked only once
+        assertEquals(List.of(1L), transaction.execute(status -> visitRepository.markScheduledAsNotShowedUp(List.of(1L, 3L))));
+        assertEquals(List.of(), transaction.execute(status -> visitRepository.markScheduledAsNotShowedUp(List.of(1L, 3L))));
+
+        assertEquals(VisitStatus.NOT_SHOWED_UP, visitsService.getVisitById(1L).status());
+        assertEquals(VisitStatus.IN_PROGRESS, visitsService.getVisitById(3L).status());
+    }
+
+    @Test
+    public void detectNoShowsUsesTheGivenTimeForTheVisitRuleTest() {
+        NoShowDetectionJob job = new NoShowDetectionJob(visitsService, meterRegistry, Duration.ofMinutes(15), 200);
+        LocalDateTime later = LocalDateTime.now().plusYears(5).withNano(0);
+
+        assertEquals(1, job.detectNoShows(later));
+
+        assertEquals(VisitStatus.NOT_SHOWED_UP, visitsService.getVisitById(1L).status());
+        assertEquals(later, visitHistoryRepository.findAll().iterator().next().getCreatedAt());
+    }
+
+    @Test
+    public void noShowGracePeriodCannotBeShorterThanTheVisitRuleTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new NoShowDetectionJob(visitsService, meterRegistry, Duration.ofMinutes(5), 200));
+    }
+
+    // ========== Export Tests ==========
+
+    @Test
+    public void exportVisitsWritesOneCsvRowPerVisitInRangeTest() {
+        StringWriter out = new StringWriter();
+
+        exportsService.exportVisits(LocalDate.parse("2025-10-27"), LocalDate.parse("2025-10-28"), new CsvWriter(out));
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("visit_id,visit_date,visit_time"));
+        assertTrue(lines[1].startsWith("1,2025-10-27,09:30,30,SCHEDULED,1,1,4,Annual checkup,"));
+        assertTrue(lines[2].startsWith("2,2025-10-28,"));
+    }
+
+    @Test
+    public void exportPrescriptionsQuotesFieldsThatNeedItTest() {
+        Long prescriptionId = visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(2, "Twice a day, \"with food\"", 5));
+        StringWriter out = new StringWriter();
+
+        exportsService.exportPrescriptions(null, null, new CsvWriter(out));
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals(prescriptionId + ",3,2025-10-29,2,3,1,Amoxicillin,2,\"Twice a day, \"\"with food\"\"\",5", lines[1]);
+    }
+
+    @Test
+    public void exportPrescriptionsNeutralizesFormulasTest() {
+        Long prescriptionId = visitsService.addMedicationPrescription(3L, 1L, new MedicationPrescriptionCommand(2, "=HYPERLINK(\"http://x\")", 5));
+        StringWriter out = new StringWriter();
+
+        exportsService.exportPrescriptions(null, null, new CsvWriter(out));
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(prescriptionId + ",3,2025-10-29,2,3,1,Amoxicillin,2,\"'=HYPERLINK(\"\"http://x\"\")\",5", lines[1]);
+
+        StringWriter row = new StringWriter();
+        new CsvWriter(row).row(-5, "-5", "@SUM(A1)", "+1", "plain");
+        assertEquals("-5,'-5,'@SUM(A1),'+1,plain\r\n", row.toString());
+    }
+
+    @Test
+    public void exportAbortsWhenItOutlivesItsTimeoutTest() {
+        ExportsService boundedExports = new ExportsService(visitRepository, invoiceRepository, 1);
+        StringWriter out = new StringWriter();
+        Writer slowClient = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                out.write(chars, offset, length);
+                if (new String(chars, offset, length).endsWith("\n")) {
+                    try {
+                        Thread.sleep(1100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(TransactionTimedOutException.class, () -> transaction.executeWithoutResult(status ->
+                boundedExports.exportVisits(null, null, new CsvWriter(slowClient))));
+
+        assertEquals(2, out.toString().split("\r\n").length);
+    }
+
+    @Test
+    public void exportInvoicesRejectsReversedRangeTest() {
+        StringWriter out = new StringWriter();
+        assertThrows(IllegalArgumentException.class, () ->
+                exportsService.exportInvoices(LocalDate.parse("2025-11-01"), LocalDate.parse("2025-10-01"), new CsvWriter(out)));
+
+        exportsService.exportInvoices(null, null, new CsvWriter(out));
+        assertEquals("invoice_id,invoice_date,status,total_amount,visit_id,pet_owner_id\r\n", out.toString());
+    }
+
+    private void makeIncompatible(Long medicationA, Long medicationB, LocalDate persistsUntil) {
+        MedicationIncompatibility incompatibility = new MedicationIncompatibility();
+        incompatibility.setMedicationA(medicationRepository.findById(medicationA).orElseThrow());
+        incompatibility.setMedicationB(medicationRepository.findById(medicationB).orElseThrow());
+        incompatibility.setPersistsUntil(persistsUntil);
+        incompatibility.setDescription("Interaction " + medicationA + "-" + medicationB);
+        medicationIncompatibilityRepository.save(incompatibility);
+    }
+
+    @Test
+    public void addMedicationPrescriptionReportsConflictingMedicationsTest() {
+        LocalDate monday = availableMondayForVet3();
+        Long visitId = visitsService.createVisit(new VisitCommand(monday.toString(), "09:00", 30, "Follow-up", 20.0, 3L, 3L, 6L));
+        visitsService.startVisit(visitId);
+        visitsService.addMedicationPrescription(visitId, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        makeIncompatible(2L, 1L, null);
+
+        MedicationIncompatibilityExistsException ex = assertThrows(MedicationIncompatibilityExistsException.class, () ->
+                visitsService.addMedicationPrescription(visitId, 2L, new MedicationPrescriptionCommand(1, "Take daily", 7)));
+
+        assertEquals(1, ex.getConflicts().size());
+        MedicationConflictInformation conflict = ex.getConflicts().get(0);
+        assertEquals(1L, conflict.medication_id());
+        assertEquals(monday, conflict.last_prescribed_on());
+        assertEquals("Interaction 2-1", conflict.description());
+    }
+
+    @Test
+    public void addMedicationPrescriptionSeesIncompatibilitiesAddedOutsideTheApplicationTest() throws InterruptedException {
+        LocalDate monday = availableMondayForVet3();
+        Long visitId = visitsService.createVisit(new VisitCommand(monday.toString(), "09:00", 30, "Follow-up", 20.0, 3L, 3L, 6L));
+        visitsService.startVisit(visitId);
+        visitsService.addMedicationPrescription(visitId, 1L, new MedicationPrescriptionCommand(1, "Take daily", 7));
+        assertFalse(incompatibilityGraph.areIncompatible(2L, 1L, monday));
+
+        jdbcTemplate.update("INSERT INTO medication_incompatibility (medication_a_id, medication_b_id, description) VALUES (2, 1, 'Added by script')");
+        Thread.sleep(1100);
+
+        MedicationIncompatibilityExistsException ex = assertThrows(MedicationIncompatibilityExistsException.class, () ->
+                visitsService.addMedicationPrescription(visitId, 2L, new MedicationPrescriptionCommand(1, "Take daily", 7)));
+        assertEquals("Added by script", ex.getConflicts().get(0).description());
+    }
+
+    @Test
+    public void incompatibilityGraphHonoursPersistsUntilTest() {
+        makeIncompatible(1L, 2L, LocalDate.parse("2025-11-15"));
+
+        assertTrue(incompatibilityGraph.areIncompatible(2L, 1L, LocalDate.parse("2025-11-01")));
+        assertTrue(incompatibilityGraph.areIncompatible(1L, 2L, LocalDate.parse("2025-11-15")));
+        assertFalse(incompatibilityGraph.areIncompatible(1L, 2L, LocalDate.parse("2025-11-16")));
+        assertFalse(incompatibilityGraph.areIncompatible(1L, 3L, LocalDate.parse("2025-11-01")));
+        assertTrue(incompatibilityGraph.conflicts(1L, Set.of(3L, 4L), LocalDate.parse("2025-11-01")).isEmpty());
+    }
+
+    @Test
+    public void incompatibilityGraphRefreshesWhenIncompatibilitiesChangeTest() {
+        LocalDate today = LocalDate.now();
+        assertFalse(incompatibilityGraph.areIncompatible(1L, 2L, today));
+
+        makeIncompatible(1L, 2L, null);
+        assertTrue(incompatibilityGraph.areIncompatible(1L, 2L, today));
+        assertEquals(1, incompatibilityGraph.size());
+
+        MedicationIncompatibility saved = medicationIncompatibilityRepository.findAll().get(0);
+        saved.setPersistsUntil(today.minusDays(1));
+        medicationIncompatibilityRepository.save(saved);
+        assertFalse(incompatibilityGraph.areIncompatible(1L, 2L, today));
+
+        medicationIncompatibilityRepository.delete(saved);
+        assertTrue(incompatibilityGraph.conflicts(1L, Set.of(2L), LocalDate.parse("2000-01-01")).isEmpty());
+        assertEquals(0, incompatibilityGraph.size());
+    }
+
+    @Test
+    public void incompatibilityGraphAnswersWithoutQueryingOnceBuiltTest() {
+        makeIncompatible(1L, 2L, null);
+        makeIncompatible(3L, 1L, null);
+        incompatibilityGraph.areIncompatible(1L, 2L, LocalDate.now());
+        double hits = meterRegistry.counter("medication.incompatibility.graph.lookups", "result", "hit").count();
+
+        long statements = countStatements(() -> assertEquals(2,
+                incompatibilityGraph.conflicts(1L, Set.of(2L, 3L, 4L), LocalDate.now()).size()));
+
+        assertEquals(0, statements);
+        assertEquals(hits + 1, meterRegistry.counter("medication.incompatibility.graph.lookups", "result", "hit").count());
+        assertEquals(2.0, meterRegistry.get("medication.incompatibility.graph.size").gauge().value());
+    }
+
     // ========== Treatment Management Tests ==========
 
     @Test
@@ -347,6 +1419,31 @@ public class VisitsServiceTest {
         assertTrue(info.isEmpty());
     }
 
+    @Test
+    public void treatmentReadsAreCachedUntilTreatmentsChangeTest() {
+        Long id = visitsService.createTreatment(new TreatmentCommand("Cached", "Desc", 10.0));
+        visitsService.getTreatmentById(id);
+        assertEquals(1, visitsService.getTreatments().size());
+        double hits = meterRegistry.get("cache.gets").tag("cache", "treatments").tag("result", "hit").functionCounter().count();
+
+        assertEquals(0, countStatements(() -> {
+            assertEquals("Cached", visitsService.getTreatmentById(id).orElseThrow().name());
+            assertEquals(1, visitsService.getTreatments().size());
+        }));
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tag("cache", "treatments").tag("result", "hit").functionCounter().count());
+
+        visitsService.updateTreatment(id, new TreatmentCommand("Renamed", "Desc", 10.0));
+        assertEquals("Renamed", visitsService.getTreatmentById(id).orElseThrow().name());
+        assertEquals("Renamed", visitsService.getTreatments().get(0).name());
+
+        visitsService.createTreatment(new TreatmentCommand("Another", "Desc", 10.0));
+        assertEquals(2, visitsService.getTreatments().size());
+
+        visitsService.deleteTreatment(id);
+        assertTrue(visitsService.getTreatmentById(id).isEmpty());
+        assertEquals(1, visitsService.getTreatments().size());
+    }
+
     @Test
     public void assignTreatmentToVisitTest() {
         TreatmentCommand tCmd = new TreatmentCommand("Treatment A", "Desc", 100.0);
@@ -370,4 +1467,35 @@ public class VisitsServiceTest {
         TreatmentInformation assigned = visitsService.getTreatmentFromVisit(3L);
         assertNull(assigned);
     }
+
+    @Test
+    public void prodMigrationsServeTheHotPredicatesFromIndexesTest() throws Exception {
+        String url = "jdbc:h2:mem:prod-migrations;DB_CLOSE_DELAY=-1";
+        assertEquals(5, Flyway.configure().dataSource(url, "sa", "").load().migrate().migrationsExecuted);
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            assertEquals("IDX_VISIT_VETERINARIAN_DATE", plannedIndex(statement,
+                    "SELECT * FROM visit WHERE veterinarian_id = 1 AND visit_date = DATE '2025-10-27'"));
+            assertEquals("IDX_VISIT_PET_DATE", plannedIndex(statement,
+                    "SELECT * FROM visit WHERE pet_id = 1 AND visit_date >= DATE '2025-01-01'"));
+            assertEquals("IDX_MEDICATION_BATCH_MEDICATION_EXPIRY", plannedIndex(statement,
+                    "SELECT * FROM medication_batch WHERE medication_id = 1 AND expiry_date >= DATE '2025-01-01'"));
+            assertEquals("IDX_INVOICE_DATE_STATUS", plannedIndex(statement,
+                    "SELECT * FROM invoice WHERE invoice_date = DATE '2025-10-27' AND status = 'UNPAID'"));
+            assertEquals("IDX_VISIT_STATUS_DATE_TIME", plannedIndex(statement,
+                    "SELECT * FROM visit WHERE status = 'SCHEDULED' AND visit_date <= DATE '2025-10-27'"));
+            assertEquals("IDX_AVAILABILITY_VETERINARIAN_DAY", plannedIndex(statement,
+                    "SELECT * FROM availability WHERE veterinarian_id = 1 AND day_of_week = 1"));
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static String plannedIndex(Statement statement, String query) throws Exception {
+        try (ResultSet plan = statement.executeQuery("EXPLAIN " + query)) {
+            plan.next();
+            Matcher index = Pattern.compile("/\\* PUBLIC\\.(\\w+)").matcher(plan.getString(1));
+            return index.find() ? index.group(1) : null;
+        }
+    }
 }
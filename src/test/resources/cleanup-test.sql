@@ -1,5 +1,7 @@
 -- Clean up all tables in correct order (child tables first, parent tables last)
+DELETE FROM prescription_daily_rollup;
 DELETE FROM medication_prescription;
+DELETE FROM visit_history;
 DELETE FROM visit;
 DELETE FROM treatment;
 
@@ -16,9 +18,12 @@ DELETE FROM discount;
 DELETE FROM promotion;
 DELETE FROM low_stock_alert;
 DELETE FROM medication_batch;
+DELETE FROM medication_stock_level;
+DELETE FROM medication_write_off;
 DELETE FROM medication_incompatibility;
 DELETE FROM medication;
 DELETE FROM pet;
+DELETE FROM booking_ledger;
 DELETE FROM availability_exception;
 DELETE FROM availability;
 DELETE FROM veterinarian;
@@ -31,11 +36,10 @@ ALTER TABLE role ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE availability ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE pet ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE medication ALTER COLUMN id RESTART WITH 1;
-ALTER TABLE medication_batch ALTER COLUMN id RESTART WITH 1;
-ALTER TABLE visit ALTER COLUMN id RESTART WITH 1;
-ALTER TABLE medication_prescription ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE low_stock_alert ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE availability_exception ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE promotion ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE discount ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE loyalty_tier ALTER COLUMN id RESTART WITH 1;
+ALTER TABLE medication_write_off ALTER COLUMN id RESTART WITH 1;
+ALTER TABLE prescription_daily_rollup ALTER COLUMN id RESTART WITH 1;
@@ -39,15 +39,22 @@ values ('Amoxicillin', 'Amoxicillin', 500, 5.50, 100),
        ('MedB', 'IngB', 250, 2.00, 10);
 
 -- Test data for medication batches
-insert into medication_batch (medication_id, lot_number, received_date, expiry_date, initial_quantity, current_quantity, purchase_price_per_unit)
-values (1, 123456789, '2025-01-15', '2026-12-31', 200, 200, 5.00),
-       (2, 987654321, '2025-02-20', '2026-06-30', 150, 150, 8.00),
-       (3, 555666777, '2025-03-10', '2025-12-31', 100, 100, 3.00),
-       (4, 1001, '2025-01-01', '2026-01-01', 100, 5, 10.00),
-       (5, 2001, '2025-02-01', '2026-02-01', 100, 20, 15.00);
+insert into medication_batch (id, medication_id, lot_number, received_date, expiry_date, initial_quantity, current_quantity, purchase_price_per_unit)
+values (1, 1, 123456789, '2025-01-15', '2026-12-31', 200, 200, 5.00),
+       (2, 2, 987654321, '2025-02-20', '2026-06-30', 150, 150, 8.00),
+       (3, 3, 555666777, '2025-03-10', '2025-12-31', 100, 100, 3.00),
+       (4, 4, 1001, '2025-01-01', '2026-01-01', 100, 5, 10.00),
+       (5, 5, 2001, '2025-02-01', '2026-02-01', 100, 20, 15.00);
 
 -- Test data for visits (use pet_owner ids 4..6)
-insert into visit (visit_date, visit_time, duration, reason, pricer_per_fifteen, status, veterinarian_id, pet_id, pet_owner_id)
-values ('2025-10-27', '09:30', 30, 'Annual checkup', 25.00, 'SCHEDULED', 1, 1, 4),
-       ('2025-10-28', '10:00', 15, 'Vaccination', 20.00, 'COMPLETED', 1, 2, 5),
-       ('2025-10-29', '08:30', 45, 'Surgery consultation', 30.00, 'IN_PROGRESS', 2, 3, 6);
+insert into visit (id, visit_date, visit_time, duration, reason, pricer_per_fifteen, status, veterinarian_id, pet_id, pet_owner_id)
+values (1, '2025-10-27', '09:30', 30, 'Annual checkup', 25.00, 'SCHEDULED', 1, 1, 4),
+       (2, '2025-10-28', '10:00', 15, 'Vaccination', 20.00, 'COMPLETED', 1, 2, 5),
+       (3, '2025-10-29', '08:30', 45, 'Surgery consultation', 30.00, 'IN_PROGRESS', 2, 3, 6);
+
+-- Visits and batches take their ids from pooled sequences: move them past the rows above but never back,
+-- Hibernate may still be handing out a block of ids it reserved in an earlier test
+ALTER SEQUENCE visit_seq RESTART WITH GREATEST((SELECT MAX(id) + 1 FROM visit),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'VISIT_SEQ'));
+ALTER SEQUENCE medication_batch_seq RESTART WITH GREATEST((SELECT MAX(id) + 1 FROM medication_batch),
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'MEDICATION_BATCH_SEQ'));